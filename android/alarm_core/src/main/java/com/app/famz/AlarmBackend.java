@@ -0,0 +1,33 @@
+package com.app.famz;
+
+/**
+ * How an alarm is handed to the platform. Each backend has its own armed slot, so alarms
+ * that need Doze-exempt delivery do not share a wakeup with low-priority reminders.
+ */
+public enum AlarmBackend {
+    /** setAlarmClock: exempt from Doze and shown in the status bar. */
+    ALARM_CLOCK("alarmClock"),
+    /** setExactAndAllowWhileIdle: exact, but rate-limited under Doze. */
+    EXACT("exact"),
+    /** setWindow: may be delivered late to batch with other wakeups. */
+    WINDOWED("windowed");
+
+    public final String channelName;
+
+    AlarmBackend(String channelName) {
+        this.channelName = channelName;
+    }
+
+    /**
+     * Parses the channel name; {@code null} selects {@link #EXACT}, which every alarm used
+     * before backends could be chosen. Throws {@link IllegalArgumentException} for an
+     * unknown name.
+     */
+    public static AlarmBackend fromChannelName(String channelName) {
+        if (channelName == null) return EXACT;
+        for (AlarmBackend backend : values()) {
+            if (backend.channelName.equals(channelName)) return backend;
+        }
+        throw new IllegalArgumentException("Unknown alarm backend: " + channelName);
+    }
+}
@@ -0,0 +1,71 @@
+package com.app.famz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoding and per-item results for the batch channel methods. Works on the plain lists and
+ * maps the channel codec produces, so it carries no Flutter or Android types.
+ */
+public final class AlarmBatch {
+    private AlarmBatch() {
+    }
+
+    /**
+     * Decodes {@code items} into {@code entries}. Each item reports its own outcome; invalid
+     * items are marked INVALID_ARGUMENT and left out.
+     */
+    public static List<Map<String, Object>> decodeAlarms(List<?> items, long now,
+                                                         List<AlarmEntry> entries) {
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+
+        for (Object item : items) {
+            try {
+                AlarmEntry entry = AlarmEntry.fromSpec(AlarmSpec.fromArguments((Map<?, ?>) item), now);
+                entries.add(entry);
+                results.add(itemResult(entry.alarmId, null));
+            } catch (IllegalArgumentException | ClassCastException e) {
+                Object alarmId = item instanceof Map ? ((Map<?, ?>) item).get("alarmId") : null;
+                results.add(itemResult(alarmId instanceof String ? (String) alarmId : null,
+                        "INVALID_ARGUMENT"));
+            }
+        }
+        return results;
+    }
+
+    public static List<Map<String, Object>> decodeIds(List<?> items, List<String> alarmIds) {
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+
+        for (Object item : items) {
+            if (item instanceof String) {
+                alarmIds.add((String) item);
+                results.add(itemResult((String) item, null));
+            } else {
+                results.add(itemResult(null, "INVALID_ARGUMENT"));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Turns every item that had succeeded into a failure, for when the native pass itself fails.
+     */
+    public static void markFailed(List<Map<String, Object>> results, String error) {
+        for (Map<String, Object> item : results) {
+            if (Boolean.TRUE.equals(item.get("success"))) {
+                item.put("success", false);
+                item.put("error", error);
+            }
+        }
+    }
+
+    private static Map<String, Object> itemResult(String alarmId, String error) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("alarmId", alarmId);
+        item.put("success", error == null);
+        item.put("error", error);
+        return item;
+    }
+}
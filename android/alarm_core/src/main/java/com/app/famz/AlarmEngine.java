@@ -0,0 +1,282 @@
+package com.app.famz;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Android-free core of {@link AlarmScheduler}: keeps every pending alarm in the
+ * {@link AlarmRegistry} and a {@link NextAlarmQueue} per {@link AlarmBackend}, and keeps one
+ * {@link Slot} armed per backend for the earliest of its alarms. Time comes from an injected
+ * {@link Clock}, whose zone is the device's current one, so the whole fire path can run on the
+ * plain JVM against a fake clock.
+ */
+public class AlarmEngine {
+    /**
+     * The wakeups the platform holds for the app, one per backend.
+     */
+    public interface Slot {
+        void arm(AlarmBackend backend, AlarmEntry head, int pending);
+
+        void cancel(AlarmBackend backend);
+    }
+
+    // Slot state before this engine armed or canceled it, e.g. after a process restart
+    private static final long UNKNOWN = Long.MIN_VALUE;
+    private static final long NOT_ARMED = -1;
+
+    private final AlarmRegistry registry;
+    private final NextAlarmQueue[] queues = new NextAlarmQueue[AlarmBackend.values().length];
+    private final long[] armedAtMillis = new long[queues.length];
+    private final Slot slot;
+    private final Clock clock;
+    private long coalesceWindowMillis;
+
+    public AlarmEngine(AlarmRegistry registry, Slot slot, Clock clock, long coalesceWindowMillis) {
+        this.registry = registry;
+        this.slot = slot;
+        this.clock = clock;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new NextAlarmQueue();
+            armedAtMillis[i] = UNKNOWN;
+        }
+        enqueue(registry.entries());
+    }
+
+    public AlarmRegistry getRegistry() {
+        return registry;
+    }
+
+    public synchronized long getCoalesceWindowMillis() {
+        return coalesceWindowMillis;
+    }
+
+    public synchronized void setCoalesceWindowMillis(long windowMillis) {
+        coalesceWindowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * Stores and queues the alarms, re-arms any slot whose earliest alarm changed, and
+     * returns the stored entries with their request codes.
+     */
+    public synchronized List<AlarmEntry> scheduleAll(Collection<AlarmEntry> entries) {
+        if (entries.isEmpty()) return Collections.emptyList();
+        dropLegacyWeekdays(entries);
+        List<AlarmEntry> stored = registry.putAll(entries);
+        enqueue(stored);
+        armSlots();
+        return stored;
+    }
+
+    public synchronized void cancelAll(Collection<String> alarmIds) {
+        if (alarmIds.isEmpty()) return;
+        registry.removeAll(alarmIds);
+        for (String alarmId : alarmIds) {
+            dequeue(alarmId);
+        }
+        armSlots();
+    }
+
+    /**
+     * Cancels every alarm issued under {@code recurringId}, plus an alarm whose own id is
+     * {@code recurringId}, in one pass. Returns the number of alarms canceled.
+     */
+    public synchronized int cancelGroup(String recurringId) {
+        List<String> alarmIds = registry.group(recurringId);
+        if (registry.get(recurringId) != null) {
+            alarmIds.add(recurringId);
+        }
+        cancelAll(alarmIds);
+        return alarmIds.size();
+    }
+
+    /**
+     * Called when any slot fires. Returns every alarm due now or within the coalescing
+     * window, whatever its backend, earliest first. Only the in-memory queues are touched so
+     * the caller can start ringing right away; {@link #commitFired} must follow to update the
+     * registry and re-arm the slots.
+     */
+    public synchronized List<AlarmEntry> pollDueAlarms() {
+        long now = clock.millis();
+        List<AlarmEntry> due = new ArrayList<>();
+        for (NextAlarmQueue queue : queues) {
+            due.addAll(queue.pollDue(now, coalesceWindowMillis));
+        }
+        if (due.size() > 1) {
+            Collections.sort(due, NextAlarmQueue.ORDER);
+        }
+        return due;
+    }
+
+    /**
+     * Persists the outcome of a fire: one-time alarms leave the registry, recurring ones move
+     * to their next occurrence, and the slots are re-armed for whatever comes next.
+     * {@code firedSlot} is the backend whose slot went off. Alarms rescheduled or canceled
+     * since they were polled keep their new state.
+     */
+    public synchronized void commitFired(AlarmBackend firedSlot, List<AlarmEntry> fired) {
+        long now = clock.millis();
+        List<AlarmEntry> next = new ArrayList<>();
+        List<String> done = new ArrayList<>();
+
+        for (AlarmEntry entry : fired) {
+            AlarmEntry stored = registry.get(entry.alarmId);
+            if (stored == null || stored.triggerAtMillis != entry.triggerAtMillis) continue;
+
+            if (entry.isRecurring()) {
+                next.add(entry.nextAfter(now + coalesceWindowMillis));
+            } else {
+                done.add(entry.alarmId);
+            }
+        }
+
+        enqueue(registry.putAll(next));
+        registry.removeAll(done);
+
+        // The slot that fired is gone from the platform
+        armedAtMillis[firedSlot.ordinal()] = NOT_ARMED;
+        armSlots();
+    }
+
+    /**
+     * Re-arms the slots from the stored alarms, e.g. after a reboot wiped the platform's
+     * alarms. Recurring alarms that were missed roll forward to their next occurrence; missed
+     * one-time alarms are dropped. Returns the number of pending alarms.
+     */
+    public synchronized int rescheduleAll() {
+        long now = clock.millis();
+        List<AlarmEntry> moved = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+
+        for (AlarmEntry entry : registry.entries()) {
+            if (entry.triggerAtMillis > now) continue;
+            if (entry.isRecurring()) {
+                moved.add(entry.nextAfter(now));
+            } else {
+                expired.add(entry.alarmId);
+            }
+        }
+
+        registry.putAll(moved);
+        registry.removeAll(expired);
+
+        for (NextAlarmQueue queue : queues) {
+            queue.clear();
+        }
+        enqueue(registry.entries());
+        Arrays.fill(armedAtMillis, UNKNOWN);
+        armSlots();
+        return pending();
+    }
+
+    /**
+     * Recomputes the alarms anchored to a local time after the device's clock was set or its
+     * time zone changed from {@code previousZone} (null if unknown). Recurring alarms move to
+     * their next occurrence from now, which only differs for those following the device's
+     * zone or after the clock jumped; one-time alarms set for a local time in the device's
+     * zone keep that local time in the new zone. Absolute alarms such as snoozes keep their
+     * instant, and alarms already due are left to the fire path. Only alarms whose fire time
+     * changed are stored and re-queued; they are returned.
+     */
+    public synchronized List<AlarmEntry> recomputeWallClock(ZoneId previousZone) {
+        long now = clock.millis();
+        boolean zoneChanged = previousZone != null && !previousZone.equals(clock.getZone());
+        List<AlarmEntry> moved = new ArrayList<>();
+
+        for (AlarmEntry entry : registry.entries()) {
+            if (entry.triggerAtMillis <= now) continue;
+
+            AlarmEntry next;
+            if (entry.isRecurring()) {
+                next = entry.nextAfter(now);
+            } else if (zoneChanged && entry.timeZone == null && entry.hasLocalTime()) {
+                next = entry.atLocalTimeFrom(previousZone);
+            } else {
+                continue;
+            }
+            if (next.triggerAtMillis != entry.triggerAtMillis) {
+                moved.add(next);
+            }
+        }
+        if (moved.isEmpty()) return moved;
+
+        List<AlarmEntry> stored = registry.putAll(moved);
+        enqueue(stored);
+        armSlots();
+        return stored;
+    }
+
+    /**
+     * A recurring alarm now covers all of its weekdays in one entry; drop the per-weekday
+     * entries that older versions stored under its id. Its snooze slot stays.
+     */
+    private void dropLegacyWeekdays(Collection<AlarmEntry> entries) {
+        List<String> legacy = new ArrayList<>();
+        for (AlarmEntry entry : entries) {
+            if (!entry.isRecurring()) continue;
+            for (String alarmId : registry.group(entry.alarmId)) {
+                if (!alarmId.equals(entry.alarmId) && !SnoozeController.isSnooze(alarmId)) {
+                    legacy.add(alarmId);
+                }
+            }
+        }
+        if (legacy.isEmpty()) return;
+
+        registry.removeAll(legacy);
+        for (String alarmId : legacy) {
+            dequeue(alarmId);
+        }
+    }
+
+    private void enqueue(Collection<AlarmEntry> entries) {
+        for (AlarmEntry entry : entries) {
+            // An alarm rescheduled with another backend leaves its old queue
+            for (NextAlarmQueue queue : queues) {
+                if (queue != queues[entry.backend.ordinal()]) {
+                    queue.remove(entry.alarmId);
+                }
+            }
+            queues[entry.backend.ordinal()].add(entry);
+        }
+    }
+
+    private void dequeue(String alarmId) {
+        for (NextAlarmQueue queue : queues) {
+            queue.remove(alarmId);
+        }
+    }
+
+    private int pending() {
+        int pending = 0;
+        for (NextAlarmQueue queue : queues) {
+            pending += queue.size();
+        }
+        return pending;
+    }
+
+    private void armSlots() {
+        for (AlarmBackend backend : AlarmBackend.values()) {
+            int i = backend.ordinal();
+            AlarmEntry head = queues[i].peek();
+            if (head == null) {
+                // A slot armed by an earlier process is still live on the platform
+                if (armedAtMillis[i] != NOT_ARMED) {
+                    slot.cancel(backend);
+                    armedAtMillis[i] = NOT_ARMED;
+                }
+                continue;
+            }
+
+            // Nothing to do if the platform already holds the slot at this time
+            if (head.triggerAtMillis == armedAtMillis[i]) continue;
+
+            slot.arm(backend, head, pending());
+            armedAtMillis[i] = head.triggerAtMillis;
+        }
+    }
+}
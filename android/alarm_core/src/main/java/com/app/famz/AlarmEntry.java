@@ -0,0 +1,123 @@
+package com.app.famz;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * One scheduled alarm as kept in the native {@link AlarmRegistry}. Weekdays use the
+ * Dart index (0 = Monday ... 6 = Sunday) as bits of {@link #weekdayMask}; a zero mask
+ * means a one-time alarm. A null {@link #timeZone} follows the device's current zone.
+ *
+ * One-time alarms set for a local time carry its hour and minute too; without them (e.g.
+ * snoozes) a one-time alarm is an absolute instant. {@link #snoozeCount} is the number of
+ * snoozes in the chain a {@link SnoozeController} slot belongs to.
+ */
+public final class AlarmEntry {
+    public final int code;
+    public final String alarmId;
+    public final long triggerAtMillis;
+    public final String videoPath;
+    public final String timeZone;
+    public final int weekdayMask;
+    public final int hour;
+    public final int minute;
+    public final String recurringId;
+    public final AlarmBackend backend;
+    public final int snoozeCount;
+
+    public AlarmEntry(String alarmId, long triggerAtMillis, String videoPath, String timeZone,
+                      int weekdayMask, int hour, int minute, String recurringId) {
+        this(RequestCodeIndex.NO_CODE, alarmId, triggerAtMillis, videoPath, timeZone,
+                weekdayMask, hour, minute, recurringId, AlarmBackend.EXACT);
+    }
+
+    public AlarmEntry(int code, String alarmId, long triggerAtMillis, String videoPath,
+                      String timeZone, int weekdayMask, int hour, int minute, String recurringId,
+                      AlarmBackend backend) {
+        this(code, alarmId, triggerAtMillis, videoPath, timeZone, weekdayMask, hour, minute,
+                recurringId, backend, 0);
+    }
+
+    public AlarmEntry(int code, String alarmId, long triggerAtMillis, String videoPath,
+                      String timeZone, int weekdayMask, int hour, int minute, String recurringId,
+                      AlarmBackend backend, int snoozeCount) {
+        this.code = code;
+        this.alarmId = alarmId;
+        this.triggerAtMillis = triggerAtMillis;
+        this.videoPath = videoPath;
+        this.timeZone = timeZone;
+        this.weekdayMask = weekdayMask;
+        this.hour = hour;
+        this.minute = minute;
+        this.recurringId = recurringId;
+        this.backend = backend;
+        this.snoozeCount = snoozeCount;
+    }
+
+    /**
+     * Recurring alarms take their first fire time from the recurrence rule rather than the
+     * timestamp Flutter computed.
+     */
+    public static AlarmEntry fromSpec(AlarmSpec spec, long now) {
+        String timeZone = spec.timeZone != null && !spec.timeZone.isEmpty() ? spec.timeZone : null;
+        AlarmEntry entry = new AlarmEntry(RequestCodeIndex.NO_CODE, spec.alarmId, spec.timestamp,
+                spec.videoPath, timeZone, spec.weekdayMask, spec.hour, spec.minute,
+                spec.recurringId, spec.backend);
+        return entry.isRecurring() ? entry.nextAfter(now) : entry;
+    }
+
+    public boolean isRecurring() {
+        return weekdayMask != 0;
+    }
+
+    public boolean hasLocalTime() {
+        return hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59;
+    }
+
+    public AlarmEntry withTriggerAt(long triggerAtMillis) {
+        return new AlarmEntry(code, alarmId, triggerAtMillis, videoPath, timeZone,
+                weekdayMask, hour, minute, recurringId, backend, snoozeCount);
+    }
+
+    public AlarmEntry withCode(int code) {
+        return new AlarmEntry(code, alarmId, triggerAtMillis, videoPath, timeZone,
+                weekdayMask, hour, minute, recurringId, backend, snoozeCount);
+    }
+
+    public RecurrenceRule rule() {
+        ZoneId zone = zone();
+        if (hour >= 0 && minute >= 0) {
+            return new RecurrenceRule(weekdayMask, hour, minute, zone);
+        }
+        // Entries stored without a local time keep the one of their current trigger
+        LocalTime time = Instant.ofEpochMilli(triggerAtMillis).atZone(zone).toLocalTime();
+        return new RecurrenceRule(weekdayMask, time.getHour(), time.getMinute(), zone);
+    }
+
+    /**
+     * Moves a recurring alarm to its first fire time after {@code now}.
+     */
+    public AlarmEntry nextAfter(long now) {
+        return withTriggerAt(rule().nextAfter(now));
+    }
+
+    /**
+     * Keeps a one-time alarm at its local date and time after the zone it was computed in,
+     * {@code previousZone}, gave way to the alarm's current one.
+     */
+    public AlarmEntry atLocalTimeFrom(ZoneId previousZone) {
+        LocalDate date = Instant.ofEpochMilli(triggerAtMillis).atZone(previousZone).toLocalDate();
+        return withTriggerAt(RecurrenceRule.fireAt(date.atTime(hour, minute), zone()));
+    }
+
+    private ZoneId zone() {
+        try {
+            return RecurrenceRule.zoneOf(timeZone);
+        } catch (IllegalArgumentException e) {
+            // A zone id the device no longer knows; the local time is still meaningful
+            return ZoneId.systemDefault();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.app.famz;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-size ring of alarm lifecycle events in a memory-mapped file.
+ *
+ * Each record is a 24-byte struct: wall-clock time (long), alarm request code (int), event
+ * type (short), result (short) and an event-specific value (long, e.g. a delay in ms).
+ * Writing one is a few absolute puts into the mapping, so it allocates nothing and costs no
+ * system call; the kernel owns the pages, so records survive the process being killed. The
+ * header keeps the count of records ever written, which is advanced only after a record is
+ * complete.
+ */
+public class AlarmJournal {
+    public static final int EVENT_ARMED = 1;
+    public static final int EVENT_DISARMED = 2;
+    public static final int EVENT_RECEIVED = 3;
+    public static final int EVENT_SERVICE = 4;
+    public static final int EVENT_JOINED = 5;
+    public static final int EVENT_ACTIVITY = 6;
+    public static final int EVENT_FIRST_FRAME = 7;
+    public static final int EVENT_AUDIO_FALLBACK = 8;
+    public static final int EVENT_SNOOZED = 9;
+    public static final int EVENT_STOPPED = 10;
+    public static final int EVENT_RESCHEDULED = 11;
+
+    public static final int RESULT_OK = 0;
+    public static final int RESULT_ERROR = 1;
+    // Armed on a weaker backend than requested
+    public static final int RESULT_DEGRADED = 2;
+
+    private static final String[] EVENT_NAMES = {
+            "unknown", "armed", "disarmed", "received", "service", "joined", "activity",
+            "firstFrame", "audioFallback", "snoozed", "stopped", "rescheduled"};
+
+    public static final int RECORD_SIZE = 24;
+    private static final int MAGIC = 0x464A524E; // "FJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SEQUENCE_OFFSET = MappedFiles.LAYOUT_SIZE;
+    private static final Logger LOG = Logger.getLogger("AlarmJournal");
+
+    private final Clock clock;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private long sequence;
+
+    public AlarmJournal(File file, int capacity, Clock clock) {
+        this.clock = clock;
+        this.capacity = capacity;
+        this.buffer = MappedFiles.map(file, HEADER_SIZE + (long) capacity * RECORD_SIZE, LOG);
+        if (buffer == null) return;
+
+        if (MappedFiles.ensureLayout(buffer, MAGIC, VERSION, capacity, RECORD_SIZE,
+                () -> buffer.putLong(SEQUENCE_OFFSET, 0))) {
+            sequence = Math.max(0, buffer.getLong(SEQUENCE_OFFSET));
+        }
+    }
+
+    public synchronized void record(int event, int code, int result, long value) {
+        if (buffer == null) return;
+
+        int offset = HEADER_SIZE + (int) (sequence % capacity) * RECORD_SIZE;
+        buffer.putLong(offset, clock.millis());
+        buffer.putInt(offset + 8, code);
+        buffer.putShort(offset + 12, (short) event);
+        buffer.putShort(offset + 14, (short) result);
+        buffer.putLong(offset + 16, value);
+
+        sequence++;
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(sequence, capacity);
+    }
+
+    /**
+     * Returns the records oldest first as [{time, event, code, result, value}] for the
+     * channel.
+     */
+    public synchronized List<Map<String, Object>> snapshot() {
+        int size = size();
+        List<Map<String, Object>> records = new ArrayList<>(size);
+        for (long seq = sequence - size; seq < sequence; seq++) {
+            int offset = HEADER_SIZE + (int) (seq % capacity) * RECORD_SIZE;
+            int event = buffer.getShort(offset + 12);
+
+            Map<String, Object> record = new HashMap<>();
+            record.put("time", buffer.getLong(offset));
+            record.put("code", buffer.getInt(offset + 8));
+            record.put("event", event > 0 && event < EVENT_NAMES.length
+                    ? EVENT_NAMES[event] : EVENT_NAMES[0]);
+            record.put("result", (int) buffer.getShort(offset + 14));
+            record.put("value", buffer.getLong(offset + 16));
+            records.add(record);
+        }
+        return records;
+    }
+}
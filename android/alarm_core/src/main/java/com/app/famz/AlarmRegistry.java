@@ -0,0 +1,249 @@
+package com.app.famz;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent store of every alarm the native layer has armed, keyed by alarmId. Each alarm
+ * carries a dense request code from {@link RequestCodeIndex}.
+ *
+ * The file is an append-only log of put/remove records so a schedule or cancel costs one
+ * small append. On load the log is replayed into memory; a torn record at the tail (process
+ * killed mid-write) ends the replay. The log is rewritten once it holds noticeably more
+ * records than live alarms.
+ */
+public class AlarmRegistry {
+    private static final int MAGIC = 0x46414D5A; // "FAMZ"
+    private static final int VERSION = 4;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int COMPACT_SLACK = 64;
+    private static final Logger LOG = Logger.getLogger("AlarmRegistry");
+
+    private final File file;
+    private final Map<String, AlarmEntry> entries = new LinkedHashMap<>();
+    private final RequestCodeIndex codes = new RequestCodeIndex();
+    private int logRecords;
+    private boolean tornTail;
+
+    public AlarmRegistry(File file) {
+        this.file = file;
+        load();
+    }
+
+    public synchronized AlarmEntry get(String alarmId) {
+        return entries.get(alarmId);
+    }
+
+    public synchronized List<AlarmEntry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Ids of every stored alarm issued under {@code recurringId}.
+     */
+    public synchronized List<String> group(String recurringId) {
+        return new ArrayList<>(codes.group(recurringId));
+    }
+
+    public AlarmEntry put(AlarmEntry entry) {
+        return putAll(Collections.singletonList(entry)).get(0);
+    }
+
+    /**
+     * Stores the batch and returns the stored entries, each with its request code assigned.
+     */
+    public synchronized List<AlarmEntry> putAll(Collection<AlarmEntry> batch) {
+        List<AlarmEntry> stored = new ArrayList<>(batch.size());
+        if (batch.isEmpty()) return stored;
+        for (AlarmEntry entry : batch) {
+            stored.add(store(entry));
+        }
+        append(stored, null);
+        return stored;
+    }
+
+    public void remove(String alarmId) {
+        removeAll(Collections.singletonList(alarmId));
+    }
+
+    public synchronized void removeAll(Collection<String> alarmIds) {
+        List<String> removed = new ArrayList<>(alarmIds.size());
+        for (String alarmId : alarmIds) {
+            AlarmEntry entry = entries.remove(alarmId);
+            if (entry != null) {
+                codes.release(alarmId, entry.recurringId);
+                removed.add(alarmId);
+            }
+        }
+        if (removed.isEmpty()) return;
+        append(null, removed);
+    }
+
+    private AlarmEntry store(AlarmEntry entry) {
+        AlarmEntry previous = entries.get(entry.alarmId);
+        if (previous != null && !sameGroup(previous.recurringId, entry.recurringId)) {
+            codes.release(previous.alarmId, previous.recurringId);
+        }
+
+        int code = codes.assign(entry.alarmId, entry.recurringId, entry.code);
+        AlarmEntry stored = entry.code == code ? entry : entry.withCode(code);
+        entries.put(stored.alarmId, stored);
+        return stored;
+    }
+
+    private static boolean sameGroup(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > VERSION) {
+                tornTail = true;
+                return;
+            }
+            // Older logs are rewritten in the current format on the next write
+            tornTail = version != VERSION;
+            int op;
+            while ((op = in.read()) != -1) {
+                if (op == OP_PUT) {
+                    store(readEntry(in, version));
+                } else if (op == OP_REMOVE) {
+                    AlarmEntry entry = entries.remove(in.readUTF());
+                    if (entry != null) {
+                        codes.release(entry.alarmId, entry.recurringId);
+                    }
+                } else {
+                    tornTail = true;
+                    break;
+                }
+                logRecords++;
+            }
+        } catch (EOFException e) {
+            // Torn final record; the next write rewrites the log without it
+            tornTail = true;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to read " + file, e);
+            tornTail = true;
+        }
+    }
+
+    private void append(Collection<AlarmEntry> puts, Collection<String> removes) {
+        int added = (puts != null ? puts.size() : 0) + (removes != null ? removes.size() : 0);
+        if (tornTail || !file.exists() || logRecords + added > entries.size() * 2 + COMPACT_SLACK) {
+            compact();
+            return;
+        }
+
+        try (FileOutputStream fileOut = new FileOutputStream(file, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            if (puts != null) {
+                for (AlarmEntry entry : puts) {
+                    out.writeByte(OP_PUT);
+                    writeEntry(out, entry);
+                }
+            }
+            if (removes != null) {
+                for (String alarmId : removes) {
+                    out.writeByte(OP_REMOVE);
+                    out.writeUTF(alarmId);
+                }
+            }
+            out.flush();
+            fileOut.getFD().sync();
+            logRecords += added;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to append to " + file, e);
+        }
+    }
+
+    private void compact() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (AlarmEntry entry : entries.values()) {
+                out.writeByte(OP_PUT);
+                writeEntry(out, entry);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to compact " + file, e);
+            tmp.delete();
+            return;
+        }
+
+        if (tmp.renameTo(file)) {
+            logRecords = entries.size();
+            tornTail = false;
+        } else {
+            tmp.delete();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, AlarmEntry entry) throws IOException {
+        out.writeInt(entry.code);
+        out.writeUTF(entry.alarmId);
+        out.writeLong(entry.triggerAtMillis);
+        out.writeUTF(entry.videoPath);
+        out.writeUTF(entry.timeZone != null ? entry.timeZone : "");
+        out.writeByte(entry.weekdayMask);
+        out.writeByte(entry.hour);
+        out.writeByte(entry.minute);
+        out.writeUTF(entry.recurringId != null ? entry.recurringId : "");
+        out.writeByte(entry.backend.ordinal());
+        out.writeShort(entry.snoozeCount);
+    }
+
+    private static AlarmEntry readEntry(DataInputStream in, int version) throws IOException {
+        int code = version >= 2 ? in.readInt() : RequestCodeIndex.NO_CODE;
+        String alarmId = in.readUTF();
+        long triggerAtMillis = in.readLong();
+        String videoPath = in.readUTF();
+        String timeZone = in.readUTF();
+        int weekdayMask = in.readByte();
+        int hour = in.readByte();
+        int minute = in.readByte();
+        String recurringId = in.readUTF();
+        AlarmBackend backend = version >= 3 ? backend(in.readByte()) : AlarmBackend.EXACT;
+        int snoozeCount = version >= 4 ? in.readShort() : 0;
+        return new AlarmEntry(code, alarmId, triggerAtMillis, videoPath,
+                timeZone.isEmpty() ? null : timeZone,
+                weekdayMask, hour, minute,
+                recurringId.isEmpty() ? null : recurringId,
+                backend, snoozeCount);
+    }
+
+    private static AlarmBackend backend(int ordinal) throws IOException {
+        AlarmBackend[] backends = AlarmBackend.values();
+        if (ordinal < 0 || ordinal >= backends.length) {
+            throw new IOException("Unknown backend " + ordinal);
+        }
+        return backends[ordinal];
+    }
+}
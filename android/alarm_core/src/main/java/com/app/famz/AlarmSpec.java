@@ -0,0 +1,88 @@
+package com.app.famz;
+
+import java.util.Map;
+
+/**
+ * Alarm arguments as sent over the com.app.famz/alarm channel, decoded once so the
+ * single and batch methods share the same validation.
+ */
+public final class AlarmSpec {
+    public final String alarmId;
+    public final long timestamp;
+    public final String videoPath;
+    public final String timeZone;
+    public final boolean isRecurring;
+    public final int weekdayMask;
+    public final int hour;
+    public final int minute;
+    public final String recurringId;
+    public final AlarmBackend backend;
+
+    private AlarmSpec(String alarmId, long timestamp, String videoPath, String timeZone,
+                      boolean isRecurring, int weekdayMask, int hour, int minute, String recurringId,
+                      AlarmBackend backend) {
+        this.alarmId = alarmId;
+        this.timestamp = timestamp;
+        this.videoPath = videoPath;
+        this.timeZone = timeZone;
+        this.isRecurring = isRecurring;
+        this.weekdayMask = weekdayMask;
+        this.hour = hour;
+        this.minute = minute;
+        this.recurringId = recurringId;
+        this.backend = backend;
+    }
+
+    /**
+     * Decodes one alarm map. Throws {@link IllegalArgumentException} when alarmId,
+     * timestamp or videoPath is missing, or when a recurring alarm has no valid weekdays,
+     * time or zone, or names an unknown backend.
+     */
+    public static AlarmSpec fromArguments(Map<?, ?> args) {
+        if (args == null) {
+            throw new IllegalArgumentException("Missing required argument");
+        }
+
+        String alarmId = (String) args.get("alarmId");
+        Number timestamp = (Number) args.get("timestamp");
+        String videoPath = (String) args.get("videoPath");
+
+        if (alarmId == null || timestamp == null || videoPath == null) {
+            throw new IllegalArgumentException("Missing required argument");
+        }
+
+        Boolean isRecurring = (Boolean) args.get("isRecurring");
+        String timeZone = (String) args.get("timeZone");
+        int hour = intArgument(args, "hour");
+        int minute = intArgument(args, "minute");
+        int weekdayMask = 0;
+
+        if (isRecurring != null && isRecurring) {
+            weekdayMask = intArgument(args, "weekdayMask");
+            if (weekdayMask < 0) {
+                // Older callers send one alarm per weekday
+                int weekday = intArgument(args, "weekday");
+                weekdayMask = weekday >= 0 && weekday < 7 ? 1 << weekday : 0;
+            }
+            // Fails fast on a bad mask, time or zone instead of when the alarm next fires
+            new RecurrenceRule(weekdayMask, hour, minute, RecurrenceRule.zoneOf(timeZone));
+        }
+
+        return new AlarmSpec(
+                alarmId,
+                timestamp.longValue(),
+                videoPath,
+                timeZone,
+                weekdayMask != 0,
+                weekdayMask,
+                hour,
+                minute,
+                (String) args.get("recurringId"),
+                AlarmBackend.fromChannelName((String) args.get("backend")));
+    }
+
+    private static int intArgument(Map<?, ?> args, String key) {
+        Number value = (Number) args.get(key);
+        return value != null ? value.intValue() : -1;
+    }
+}
@@ -0,0 +1,141 @@
+package com.app.famz;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fire-path latency samples per alarm, kept as small rings of the most recent delays (in ms
+ * after the scheduled trigger time) for each hop. The audio switch-over hop is the exception:
+ * it is measured from the video failing to the first fallback audio frame. Percentiles are
+ * computed on demand. Only the most recently fired alarms are kept. Not thread-safe;
+ * {@link AlarmLatencyTracker} guards it.
+ */
+public class LatencyStats {
+    public static final int HOP_RECEIVER = 0;
+    public static final int HOP_SERVICE = 1;
+    public static final int HOP_ACTIVITY = 2;
+    public static final int HOP_FIRST_FRAME = 3;
+    public static final int HOP_AUDIO_SWITCH = 4;
+
+    private static final String[] HOP_NAMES =
+            {"receiver", "service", "activity", "firstFrame", "audioSwitch"};
+    private static final int SAMPLES_PER_HOP = 128;
+    private static final int MAX_ALARMS = 64;
+    private static final int VERSION = 2;
+    // Hops written by version 1, before audioSwitch
+    private static final int V1_HOPS = 4;
+
+    private static final class Ring {
+        final int[] samples = new int[SAMPLES_PER_HOP];
+        int next;
+        int count;
+
+        void add(int value) {
+            samples[next] = value;
+            next = (next + 1) % SAMPLES_PER_HOP;
+            if (count < SAMPLES_PER_HOP) count++;
+        }
+
+        int[] sorted() {
+            int[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private final LinkedHashMap<String, Ring[]> alarms =
+            new LinkedHashMap<String, Ring[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Ring[]> eldest) {
+                    return size() > MAX_ALARMS;
+                }
+            };
+
+    public void record(String alarmKey, int hop, long delayMillis) {
+        Ring[] rings = alarms.get(alarmKey);
+        if (rings == null) {
+            rings = new Ring[HOP_NAMES.length];
+            for (int i = 0; i < rings.length; i++) {
+                rings[i] = new Ring();
+            }
+            alarms.put(alarmKey, rings);
+        }
+        rings[hop].add((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, delayMillis)));
+    }
+
+    /**
+     * Returns {alarmKey: {hop: {count, p50, p95, p99, max}}} for the channel.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, Ring[]> alarm : alarms.entrySet()) {
+            Map<String, Object> hops = new HashMap<>();
+            Ring[] rings = alarm.getValue();
+            for (int hop = 0; hop < rings.length; hop++) {
+                if (rings[hop].count == 0) continue;
+                int[] sorted = rings[hop].sorted();
+                Map<String, Object> stats = new HashMap<>();
+                stats.put("count", sorted.length);
+                stats.put("p50", percentile(sorted, 50));
+                stats.put("p95", percentile(sorted, 95));
+                stats.put("p99", percentile(sorted, 99));
+                stats.put("max", sorted[sorted.length - 1]);
+                hops.put(HOP_NAMES[hop], stats);
+            }
+            result.put(alarm.getKey(), hops);
+        }
+        return result;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeInt(alarms.size());
+        for (Map.Entry<String, Ring[]> alarm : alarms.entrySet()) {
+            out.writeUTF(alarm.getKey());
+            for (Ring ring : alarm.getValue()) {
+                out.writeShort(ring.count);
+                out.writeShort(ring.next);
+                for (int i = 0; i < ring.count; i++) {
+                    out.writeInt(ring.samples[i]);
+                }
+            }
+        }
+    }
+
+    public void read(DataInputStream in) throws IOException {
+        alarms.clear();
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) return;
+        int hops = version == 1 ? V1_HOPS : HOP_NAMES.length;
+        int size = in.readInt();
+        for (int a = 0; a < size; a++) {
+            String key = in.readUTF();
+            Ring[] rings = new Ring[HOP_NAMES.length];
+            for (int hop = 0; hop < rings.length; hop++) {
+                Ring ring = new Ring();
+                rings[hop] = ring;
+                if (hop >= hops) continue;
+                ring.count = in.readShort();
+                ring.next = in.readShort();
+                if (ring.count < 0 || ring.count > SAMPLES_PER_HOP
+                        || ring.next < 0 || ring.next >= SAMPLES_PER_HOP) {
+                    throw new IOException("Corrupt latency ring");
+                }
+                for (int i = 0; i < ring.count; i++) {
+                    ring.samples[i] = in.readInt();
+                }
+            }
+            alarms.put(key, rings);
+        }
+    }
+
+    private static int percentile(int[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+}
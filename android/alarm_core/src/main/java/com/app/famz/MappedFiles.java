@@ -0,0 +1,58 @@
+package com.app.famz;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Memory-mapped stores of fixed-size records, such as {@link AlarmJournal} and
+ * {@link PowerLedger}. Their header starts with magic, version, record count and record size
+ * (an int each), so a file written with another layout is recognized and started over.
+ */
+final class MappedFiles {
+    static final int LAYOUT_SIZE = 16;
+
+    private MappedFiles() {
+    }
+
+    /**
+     * Maps {@code file} read-write at exactly {@code size} bytes, or returns null if it can't
+     * be mapped.
+     */
+    static MappedByteBuffer map(File file, long size, Logger log) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            // The mapping stays valid after the file is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to map " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if {@code buffer} already holds this layout. Otherwise runs {@code reset}
+     * to clear the rest of the file, then writes the layout, and returns false.
+     */
+    static boolean ensureLayout(MappedByteBuffer buffer, int magic, int version, int count,
+                                int recordSize, Runnable reset) {
+        if (buffer.getInt(0) == magic && buffer.getInt(4) == version
+                && buffer.getInt(8) == count && buffer.getInt(12) == recordSize) {
+            return true;
+        }
+
+        // New file or another layout; start over
+        reset.run();
+        buffer.putInt(0, magic);
+        buffer.putInt(4, version);
+        buffer.putInt(8, count);
+        buffer.putInt(12, recordSize);
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package com.app.famz;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * In-memory priority queue of pending alarms ordered by trigger time. Only the head is
+ * armed with AlarmManager; when it fires, every alarm due within the coalescing window is
+ * taken in one go. Not thread-safe; {@link AlarmEngine}'s monitor guards it.
+ */
+public class NextAlarmQueue {
+    public static final Comparator<AlarmEntry> ORDER = (a, b) -> {
+        int byTime = Long.compare(a.triggerAtMillis, b.triggerAtMillis);
+        return byTime != 0 ? byTime : a.alarmId.compareTo(b.alarmId);
+    };
+
+    private final TreeSet<AlarmEntry> queue = new TreeSet<>(ORDER);
+    private final Map<String, AlarmEntry> byId = new HashMap<>();
+
+    public void add(AlarmEntry entry) {
+        AlarmEntry previous = byId.put(entry.alarmId, entry);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        queue.add(entry);
+    }
+
+    public void addAll(Collection<AlarmEntry> entries) {
+        for (AlarmEntry entry : entries) {
+            add(entry);
+        }
+    }
+
+    public AlarmEntry remove(String alarmId) {
+        AlarmEntry entry = byId.remove(alarmId);
+        if (entry != null) {
+            queue.remove(entry);
+        }
+        return entry;
+    }
+
+    public void clear() {
+        queue.clear();
+        byId.clear();
+    }
+
+    public AlarmEntry peek() {
+        return queue.isEmpty() ? null : queue.first();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Removes and returns every alarm whose trigger time is at or before
+     * {@code now + windowMillis}, earliest first.
+     */
+    public List<AlarmEntry> pollDue(long now, long windowMillis) {
+        List<AlarmEntry> due = new ArrayList<>();
+        long limit = now + windowMillis;
+        while (!queue.isEmpty() && queue.first().triggerAtMillis <= limit) {
+            AlarmEntry entry = queue.pollFirst();
+            byId.remove(entry.alarmId);
+            due.add(entry);
+        }
+        return due;
+    }
+}
@@ -0,0 +1,125 @@
+package com.app.famz;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Daily totals of what the alarm stack costs in battery, in a memory-mapped ring of one row
+ * per day in the clock's zone.
+ *
+ * A row is the epoch day (long) followed by one long per counter, so adding to a counter is
+ * two absolute reads and a put. The bounds of the current day are cached, so this allocates
+ * nothing and makes no system call outside the first add of a day, and the totals survive
+ * the process being killed like {@link AlarmJournal} records do. A row is reused when its day
+ * comes round again; durations are booked on the day they end.
+ */
+public class PowerLedger {
+    // AlarmManager slot fires that reached the receiver
+    public static final int WAKEUPS = 0;
+    // Alarms rung by those wakeups; more alarms per wakeup means better coalescing
+    public static final int ALARMS = 1;
+    public static final int SERVICE_MS = 2;
+    public static final int WAKE_LOCK_MS = 3;
+    public static final int VIBRATOR_MS = 4;
+    // One-off decodes: fallback sound, poster extraction and poster bitmaps
+    public static final int DECODE_MS = 5;
+    // Video decoders running while an alarm rings
+    public static final int VIDEO_MS = 6;
+
+    private static final String[] NAMES = {
+            "wakeups", "alarms", "serviceMs", "wakeLockMs", "vibratorMs", "decodeMs", "videoMs"};
+
+    private static final int COUNTERS = NAMES.length;
+    private static final int ROW_SIZE = 8 + COUNTERS * 8;
+    private static final int MAGIC = 0x4650574C; // "FPWL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = MappedFiles.LAYOUT_SIZE;
+    private static final Logger LOG = Logger.getLogger("PowerLedger");
+
+    private final Clock clock;
+    private final int days;
+    private final MappedByteBuffer buffer;
+    // Today's epoch day and the span it covers, recomputed only once the clock leaves it
+    private long day;
+    private long dayStartMillis;
+    private long nextDayMillis;
+
+    public PowerLedger(File file, int days, Clock clock) {
+        this.clock = clock;
+        this.days = days;
+        this.buffer = MappedFiles.map(file, HEADER_SIZE + (long) days * ROW_SIZE, LOG);
+        if (buffer == null) return;
+
+        MappedFiles.ensureLayout(buffer, MAGIC, VERSION, days, ROW_SIZE, () -> {
+            for (int i = 0; i < days; i++) {
+                buffer.putLong(HEADER_SIZE + i * ROW_SIZE, -1);
+            }
+        });
+    }
+
+    public synchronized void add(int counter, long amount) {
+        if (buffer == null || amount <= 0) return;
+
+        long day = today();
+        int offset = HEADER_SIZE + (int) Math.floorMod(day, (long) days) * ROW_SIZE;
+        if (buffer.getLong(offset) != day) {
+            // The row still holds the same day of an earlier round
+            for (int i = 0; i < COUNTERS; i++) {
+                buffer.putLong(offset + 8 + i * 8, 0);
+            }
+            buffer.putLong(offset, day);
+        }
+        int at = offset + 8 + counter * 8;
+        buffer.putLong(at, buffer.getLong(at) + amount);
+    }
+
+    /**
+     * Returns the kept days oldest first as [{day: "yyyy-MM-dd", wakeups, alarms, serviceMs,
+     * wakeLockMs, vibratorMs, decodeMs, videoMs}] for the channel. Days without activity are
+     * left out.
+     */
+    public synchronized List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (buffer == null) return rows;
+
+        long today = today();
+        for (long day = today - days + 1; day <= today; day++) {
+            int offset = HEADER_SIZE + (int) Math.floorMod(day, (long) days) * ROW_SIZE;
+            if (buffer.getLong(offset) != day) continue;
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("day", LocalDate.ofEpochDay(day).toString());
+            for (int i = 0; i < COUNTERS; i++) {
+                row.put(NAMES[i], buffer.getLong(offset + 8 + i * 8));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * The epoch day in the clock's zone. A zone change shows from the next day boundary on.
+     */
+    private long today() {
+        long now = clock.millis();
+        if (now < dayStartMillis || now >= nextDayMillis) {
+            ZoneId zone = clock.getZone();
+            ZonedDateTime start = Instant.ofEpochMilli(now).atZone(zone).toLocalDate()
+                    .atStartOfDay(zone);
+            day = start.toLocalDate().toEpochDay();
+            dayStartMillis = start.toInstant().toEpochMilli();
+            nextDayMillis = start.plusDays(1).toInstant().toEpochMilli();
+        }
+        return day;
+    }
+}
@@ -0,0 +1,67 @@
+package com.app.famz;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * How hard a video download is pushed, chosen from the time left until the earliest alarm
+ * that needs it. Far from the fire time downloads wait for a cheap window; closer to it any
+ * network will do and failures are retried sooner.
+ */
+public enum PrefetchTier {
+    /** Hours left: wait for an unmetered network or for the device to charge. */
+    RELAXED(30 * 60 * 1000L),
+    /** Any network; the alarm is getting close. */
+    NORMAL(5 * 60 * 1000L),
+    /** Last hour: any network, run right away, retry quickly. */
+    URGENT(30 * 1000L);
+
+    static final long NORMAL_BEFORE_MS = 6 * 60 * 60 * 1000L;
+    static final long URGENT_BEFORE_MS = 60 * 60 * 1000L;
+
+    public final long retryDelayMillis;
+
+    PrefetchTier(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public static PrefetchTier forRemaining(long remainingMillis) {
+        if (remainingMillis > NORMAL_BEFORE_MS) return RELAXED;
+        if (remainingMillis > URGENT_BEFORE_MS) return NORMAL;
+        return URGENT;
+    }
+
+    /**
+     * Milliseconds until a download with {@code remainingMillis} left moves to the next
+     * tier; 0 once it is urgent.
+     */
+    public static long escalatesInMillis(long remainingMillis) {
+        if (remainingMillis > NORMAL_BEFORE_MS) return remainingMillis - NORMAL_BEFORE_MS;
+        if (remainingMillis > URGENT_BEFORE_MS) return remainingMillis - URGENT_BEFORE_MS;
+        return 0;
+    }
+
+    public boolean allows(boolean metered, boolean charging) {
+        return this != RELAXED || !metered || charging;
+    }
+
+    /**
+     * The earliest trigger time of the alarms using each video that {@code needsFetch}
+     * accepts; that is the download's deadline.
+     */
+    public static Map<String, Long> deadlines(Collection<AlarmEntry> entries,
+                                              Predicate<String> needsFetch) {
+        Map<String, Long> deadlines = new HashMap<>();
+        for (AlarmEntry entry : entries) {
+            String source = entry.videoPath;
+            if (source == null || source.isEmpty() || !needsFetch.test(source)) continue;
+            Long deadline = deadlines.get(source);
+            if (deadline == null || entry.triggerAtMillis < deadline) {
+                deadlines.put(source, entry.triggerAtMillis);
+            }
+        }
+        return deadlines;
+    }
+}
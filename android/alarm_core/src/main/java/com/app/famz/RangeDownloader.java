@@ -0,0 +1,164 @@
+package com.app.famz;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Downloads a URL into a partial file that is kept when the transfer fails, so the next
+ * attempt continues where it stopped with an HTTP range request.
+ *
+ * The response's ETag (or Last-Modified) is saved next to the partial file and sent back as
+ * If-Range; if the video changed on the server meanwhile, the server answers with the whole
+ * file and the download starts over. Without a validator nothing is resumed.
+ */
+public class RangeDownloader {
+    private static final String META_SUFFIX = ".meta";
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    public RangeDownloader(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * Completes {@code part} from {@code url} and returns its size. On an IOException the
+     * bytes received so far stay in {@code part} for the next call.
+     */
+    public long download(String url, File part) throws IOException {
+        File meta = new File(part.getPath() + META_SUFFIX);
+        long have = part.length();
+        String validator = have > 0 ? readValidator(meta) : null;
+        if (validator == null) {
+            have = 0;
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeoutMs);
+        connection.setReadTimeout(readTimeoutMs);
+        if (have > 0) {
+            connection.setRequestProperty("Range", "bytes=" + have + "-");
+            connection.setRequestProperty("If-Range", validator);
+        }
+
+        try {
+            int code = connection.getResponseCode();
+            boolean append;
+            if (code == HttpURLConnection.HTTP_PARTIAL && have > 0
+                    && rangeStart(connection.getHeaderField("Content-Range")) == have) {
+                append = true;
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                append = false;
+                have = 0;
+                writeValidator(meta, validatorOf(connection));
+            } else if (code == 416 && have > 0
+                    && rangeTotal(connection.getHeaderField("Content-Range")) == have) {
+                // Everything was already received; only the completion was lost
+                meta.delete();
+                return have;
+            } else {
+                // Includes a 206 for another range: the partial file can't be trusted
+                part.delete();
+                meta.delete();
+                throw new IOException("HTTP " + code + " for " + url);
+            }
+
+            long expected = connection.getContentLengthLong();
+            long received = 0;
+            try (InputStream in = connection.getInputStream();
+                 OutputStream out = new FileOutputStream(part, append)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    received += read;
+                }
+            }
+            if (expected >= 0 && received != expected) {
+                throw new IOException("Connection closed after " + (have + received) +
+                        " of " + (have + expected) + " bytes of " + url);
+            }
+
+            meta.delete();
+            return have + received;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Drops a partial download and its validator.
+     */
+    public static void discard(File part) {
+        part.delete();
+        new File(part.getPath() + META_SUFFIX).delete();
+    }
+
+    private static String validatorOf(HttpURLConnection connection) {
+        String etag = connection.getHeaderField("ETag");
+        // Weak ETags can't be used with If-Range
+        if (etag != null && !etag.startsWith("W/")) return etag;
+        return connection.getHeaderField("Last-Modified");
+    }
+
+    private static String readValidator(File meta) {
+        if (!meta.exists()) return null;
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(meta), StandardCharsets.UTF_8))) {
+            String validator = in.readLine();
+            return validator == null || validator.isEmpty() ? null : validator;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeValidator(File meta, String validator) throws IOException {
+        if (validator == null) {
+            meta.delete();
+            return;
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(meta), StandardCharsets.UTF_8)) {
+            out.write(validator);
+        }
+    }
+
+    /**
+     * First byte of "bytes 100-199/200", or -1.
+     */
+    private static long rangeStart(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) return -1;
+        int dash = contentRange.indexOf('-');
+        if (dash < 0) return -1;
+        try {
+            return Long.parseLong(contentRange.substring(6, dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Total length of "bytes *&#47;200", or -1.
+     */
+    private static long rangeTotal(String contentRange) {
+        if (contentRange == null) return -1;
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0) return -1;
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.app.famz;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+
+/**
+ * Weekly recurrence: a local time on a set of weekdays in a time zone. Weekdays use the Dart
+ * index (0 = Monday ... 6 = Sunday) as bits of the mask. Plain java.time, no Android types, so
+ * the scheduler, the receiver and the channel handler all compute fire times the same way.
+ *
+ * DST: a local time that falls into a spring-forward gap fires when the gap ends, and a local
+ * time that occurs twice on a fall-back day fires once, at its first occurrence.
+ */
+public final class RecurrenceRule {
+    public static final int ALL_DAYS = 0x7F;
+
+    public final int weekdayMask;
+    public final int hour;
+    public final int minute;
+    public final ZoneId zone;
+
+    public RecurrenceRule(int weekdayMask, int hour, int minute, ZoneId zone) {
+        if ((weekdayMask & ALL_DAYS) == 0 || (weekdayMask & ~ALL_DAYS) != 0) {
+            throw new IllegalArgumentException("Invalid weekday mask: " + weekdayMask);
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            throw new IllegalArgumentException("Invalid time: " + hour + ":" + minute);
+        }
+        this.weekdayMask = weekdayMask;
+        this.hour = hour;
+        this.minute = minute;
+        this.zone = zone;
+    }
+
+    /**
+     * Resolves a zone id as sent by Flutter; an empty id means the device's current zone.
+     * Throws {@link IllegalArgumentException} for an unknown id.
+     */
+    public static ZoneId zoneOf(String timeZone) {
+        if (timeZone == null || timeZone.isEmpty()) {
+            return ZoneId.systemDefault();
+        }
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid time zone: " + timeZone, e);
+        }
+    }
+
+    /**
+     * The first fire time strictly after {@code afterMillis}. Constant time: the mask is
+     * rotated so bit 0 is today and the next selected day is its lowest set bit.
+     */
+    public long nextAfter(long afterMillis) {
+        LocalDate today = Instant.ofEpochMilli(afterMillis).atZone(zone).toLocalDate();
+        int todayIndex = today.getDayOfWeek().getValue() - 1;
+
+        // Doubling the mask to 14 bits turns the rotation into a single shift
+        int days = (weekdayMask | weekdayMask << 7) >>> todayIndex;
+        int offset = Integer.numberOfTrailingZeros(days);
+        long fireAt = fireAt(today.plusDays(offset));
+        if (fireAt > afterMillis) {
+            return fireAt;
+        }
+
+        // Only today's occurrence can already have passed; take the next selected day
+        offset += 1 + Integer.numberOfTrailingZeros(days >>> (offset + 1));
+        return fireAt(today.plusDays(offset));
+    }
+
+    private long fireAt(LocalDate date) {
+        return fireAt(date.atTime(hour, minute), zone);
+    }
+
+    /**
+     * The instant a local date and time fires at in {@code zone}, resolving DST gaps and
+     * overlaps as described above.
+     */
+    public static long fireAt(LocalDateTime local, ZoneId zone) {
+        ZoneOffsetTransition transition = zone.getRules().getTransition(local);
+        if (transition != null && transition.isGap()) {
+            return transition.getInstant().toEpochMilli();
+        }
+        // Outside a gap this picks the earlier offset, i.e. the first of two overlapping times
+        return ZonedDateTime.of(local, zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,85 @@
+package com.app.famz;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dense, collision-free int codes for alarms, replacing {@code alarmId.hashCode()}. Freed
+ * codes are reused lowest-first so the code space stays compact. Also indexes alarms by
+ * recurringId so a whole group can be found in O(1). Code {@link #SLOT_CODE} is reserved for
+ * the scheduler's AlarmManager slots, one per {@link AlarmBackend}, which share it and differ
+ * by intent data. Not thread-safe; {@link AlarmRegistry} guards it.
+ */
+public class RequestCodeIndex {
+    public static final int SLOT_CODE = 0;
+    public static final int NO_CODE = -1;
+
+    private final BitSet used = new BitSet();
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final Map<String, Set<String>> groups = new HashMap<>();
+
+    public RequestCodeIndex() {
+        used.set(SLOT_CODE);
+    }
+
+    public int codeFor(String alarmId) {
+        Integer code = codes.get(alarmId);
+        return code != null ? code : NO_CODE;
+    }
+
+    /**
+     * Returns the alarm's code, issuing one if it has none. {@code storedCode} is honoured when
+     * it is still free, so codes survive a reload of the registry.
+     */
+    public int assign(String alarmId, String groupId, int storedCode) {
+        Integer existing = codes.get(alarmId);
+        if (existing != null) {
+            return existing;
+        }
+
+        int code = storedCode > SLOT_CODE && !used.get(storedCode)
+                ? storedCode
+                : used.nextClearBit(SLOT_CODE + 1);
+        used.set(code);
+        codes.put(alarmId, code);
+
+        if (groupId != null) {
+            Set<String> members = groups.get(groupId);
+            if (members == null) {
+                members = new LinkedHashSet<>();
+                groups.put(groupId, members);
+            }
+            members.add(alarmId);
+        }
+        return code;
+    }
+
+    public void release(String alarmId, String groupId) {
+        Integer code = codes.remove(alarmId);
+        if (code != null) {
+            used.clear(code);
+        }
+
+        if (groupId != null) {
+            Set<String> members = groups.get(groupId);
+            if (members != null) {
+                members.remove(alarmId);
+                if (members.isEmpty()) {
+                    groups.remove(groupId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Alarm ids issued under {@code groupId}; the returned set is a live view.
+     */
+    public Set<String> group(String groupId) {
+        Set<String> members = groups.get(groupId);
+        return members != null ? Collections.unmodifiableSet(members) : Collections.<String>emptySet();
+    }
+}
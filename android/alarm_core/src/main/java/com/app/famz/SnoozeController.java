@@ -0,0 +1,133 @@
+package com.app.famz;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One snooze slot per alarm. Snoozing alarm X stores the one-time alarm "X#snooze" in the
+ * {@link AlarmEngine}, issued under X's group, so Flutter's group cancel of X also cancels a
+ * pending snooze. Snoozing the slot again when it rings moves the same slot: the id never
+ * grows, its request code carries over, and the chain length is kept in
+ * {@link AlarmEntry#snoozeCount} so it survives the process being killed.
+ */
+public class SnoozeController {
+    public static final String SUFFIX = "#snooze";
+    public static final long DEFAULT_DURATION_MS = 9 * 60 * 1000L;
+    public static final int DEFAULT_MAX_COUNT = 3;
+
+    private final AlarmEngine engine;
+    private final Clock clock;
+    private long durationMillis;
+    private int maxCount;
+
+    public SnoozeController(AlarmEngine engine, Clock clock, long durationMillis, int maxCount) {
+        this.engine = engine;
+        this.clock = clock;
+        setSettings(durationMillis, maxCount);
+    }
+
+    public static boolean isSnooze(String alarmId) {
+        return alarmId != null && alarmId.endsWith(SUFFIX);
+    }
+
+    /**
+     * The snooze slot of {@code alarmId}, which may itself be a slot.
+     */
+    public static String slotId(String alarmId) {
+        return isSnooze(alarmId) ? alarmId : alarmId + SUFFIX;
+    }
+
+    public synchronized long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public synchronized int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * {@code maxCount} of zero or less allows any number of snoozes in a row.
+     */
+    public synchronized void setSettings(long durationMillis, int maxCount) {
+        this.durationMillis = Math.max(60 * 1000L, durationMillis);
+        this.maxCount = Math.max(0, maxCount);
+    }
+
+    /**
+     * Whether the ringing alarm may be snoozed once more.
+     */
+    public synchronized boolean canSnooze(AlarmEntry ringing) {
+        return maxCount == 0 || ringing.snoozeCount < maxCount;
+    }
+
+    /**
+     * Snoozes the alarms ringing together for the configured duration. Alarms whose chain
+     * reached the maximum are left out. Returns the stored slots.
+     */
+    public List<AlarmEntry> snoozeAll(Collection<AlarmEntry> ringing) {
+        return snoozeAll(ringing, clock.millis() + getDurationMillis());
+    }
+
+    /**
+     * Like {@link #snoozeAll(Collection)} with an explicit fire time.
+     */
+    public List<AlarmEntry> snoozeAll(Collection<AlarmEntry> ringing, long triggerAtMillis) {
+        List<AlarmEntry> slots = new ArrayList<>(ringing.size());
+        for (AlarmEntry entry : ringing) {
+            if (!canSnooze(entry)) continue;
+
+            // A ringing slot passes its code on so the platform sees the same request code
+            String slotId = slotId(entry.alarmId);
+            slots.add(slot(slotId.equals(entry.alarmId) ? entry.code : RequestCodeIndex.NO_CODE,
+                    slotId, triggerAtMillis, entry, entry.snoozeCount + 1));
+        }
+        return engine.scheduleAll(slots);
+    }
+
+    /**
+     * Stores the snooze slot of {@code alarm} at {@code triggerAtMillis} without advancing the
+     * chain: a pending slot keeps its count, a new one counts as the first snooze. For
+     * snoozes set from outside the ringing screen, e.g. Flutter moving a pending snooze.
+     */
+    public AlarmEntry schedule(AlarmEntry alarm, long triggerAtMillis) {
+        String slotId = slotId(alarm.alarmId);
+        AlarmEntry pending = engine.getRegistry().get(slotId);
+        AlarmEntry slot = pending != null
+                ? slot(pending.code, slotId, triggerAtMillis, pending, pending.snoozeCount)
+                : slot(RequestCodeIndex.NO_CODE, slotId, triggerAtMillis, alarm, 1);
+        return engine.scheduleAll(Collections.singletonList(slot)).get(0);
+    }
+
+    private static AlarmEntry slot(int code, String slotId, long triggerAtMillis,
+                                   AlarmEntry source, int snoozeCount) {
+        return new AlarmEntry(
+                code,
+                slotId,
+                triggerAtMillis,
+                source.videoPath,
+                null, 0, -1, -1,
+                groupOf(source),
+                source.backend,
+                snoozeCount);
+    }
+
+    /**
+     * Cancels a pending snooze of {@code alarmId}. Returns whether one was pending.
+     */
+    public boolean cancel(String alarmId) {
+        String slotId = slotId(alarmId);
+        if (engine.getRegistry().get(slotId) == null) return false;
+        engine.cancelAll(Collections.singletonList(slotId));
+        return true;
+    }
+
+    private static String groupOf(AlarmEntry entry) {
+        if (entry.recurringId != null) return entry.recurringId;
+        return isSnooze(entry.alarmId)
+                ? entry.alarmId.substring(0, entry.alarmId.length() - SUFFIX.length())
+                : entry.alarmId;
+    }
+}
@@ -0,0 +1,140 @@
+package com.app.famz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AlarmEngineTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MINUTE = 60 * 1000L;
+    private static final int ALL_DAYS = RecurrenceRule.ALL_DAYS;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final List<AlarmEntry> armed = new ArrayList<>();
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "alarms.bin");
+    }
+
+    @Test
+    public void commitSkipsAlarmRescheduledSincePoll() {
+        AlarmEngine engine = engine();
+        engine.scheduleAll(Arrays.asList(entry("a", NOW + MINUTE), entry("b", NOW + MINUTE)));
+
+        clock.millis = NOW + MINUTE;
+        List<AlarmEntry> due = engine.pollDueAlarms();
+        assertEquals(2, due.size());
+
+        // Flutter moved "a" while it was ringing
+        engine.scheduleAll(Collections.singletonList(entry("a", NOW + 60 * MINUTE)));
+        engine.commitFired(AlarmBackend.EXACT, due);
+
+        assertEquals(NOW + 60 * MINUTE, engine.getRegistry().get("a").triggerAtMillis);
+        assertNull(engine.getRegistry().get("b"));
+        assertEquals("a", last().alarmId);
+    }
+
+    @Test
+    public void commitMovesRecurringToNextOccurrence() {
+        AlarmEngine engine = engine();
+        AlarmEntry daily = engine.scheduleAll(Collections.singletonList(new AlarmEntry(
+                "daily", NOW + MINUTE, "video.mp4", null, ALL_DAYS, -1, -1, null)
+                .nextAfter(NOW))).get(0);
+
+        clock.millis = daily.triggerAtMillis;
+        engine.commitFired(AlarmBackend.EXACT, engine.pollDueAlarms());
+
+        assertEquals(daily.triggerAtMillis + 24 * 60 * MINUTE,
+                engine.getRegistry().get("daily").triggerAtMillis);
+    }
+
+    @Test
+    public void rescheduleAllDropsMissedOneTimeAlarms() {
+        AlarmEngine engine = engine();
+        engine.scheduleAll(Arrays.asList(
+                entry("missed", NOW + MINUTE),
+                entry("later", NOW + 60 * MINUTE),
+                new AlarmEntry("daily", NOW + MINUTE, "video.mp4", null, ALL_DAYS, 7, 0, null)));
+
+        // The device was off past the first fire times
+        clock.millis = NOW + 10 * MINUTE;
+        AlarmEngine rebooted = engine();
+        armed.clear();
+
+        assertEquals(2, rebooted.rescheduleAll());
+        assertNull(rebooted.getRegistry().get("missed"));
+        assertEquals(NOW + 60 * MINUTE, rebooted.getRegistry().get("later").triggerAtMillis);
+        long daily = rebooted.getRegistry().get("daily").triggerAtMillis;
+        assertEquals(new AlarmEntry("daily", 0, "", null, ALL_DAYS, 7, 0, null)
+                .nextAfter(clock.millis).triggerAtMillis, daily);
+        assertEquals(Math.min(daily, NOW + 60 * MINUTE), last().triggerAtMillis);
+    }
+
+    private AlarmEngine engine() {
+        return new AlarmEngine(new AlarmRegistry(file), new AlarmEngine.Slot() {
+            @Override
+            public void arm(AlarmBackend backend, AlarmEntry head, int pending) {
+                armed.add(head);
+            }
+
+            @Override
+            public void cancel(AlarmBackend backend) {
+            }
+        }, clock, 0);
+    }
+
+    private AlarmEntry last() {
+        return armed.get(armed.size() - 1);
+    }
+
+    private static AlarmEntry entry(String alarmId, long triggerAtMillis) {
+        return new AlarmEntry(alarmId, triggerAtMillis, "video.mp4", null, 0, -1, -1, null);
+    }
+
+    private static final class MutableClock extends Clock {
+        long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.app.famz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AlarmRegistryTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "alarms.bin");
+    }
+
+    @Test
+    public void replaysPutsAndRemoves() {
+        AlarmRegistry registry = new AlarmRegistry(file);
+        registry.putAll(Arrays.asList(entry("a", 1000), entry("b", 2000), entry("c", 3000)));
+        registry.remove("b");
+        registry.put(entry("a", 1500));
+
+        AlarmRegistry reloaded = new AlarmRegistry(file);
+
+        assertEquals(2, reloaded.size());
+        assertEquals(1500, reloaded.get("a").triggerAtMillis);
+        assertNull(reloaded.get("b"));
+        assertEquals(3000, reloaded.get("c").triggerAtMillis);
+        // Codes survive the reload
+        assertEquals(registry.get("a").code, reloaded.get("a").code);
+        assertEquals(registry.get("c").code, reloaded.get("c").code);
+    }
+
+    @Test
+    public void tornTailEndsReplay() throws IOException {
+        AlarmRegistry registry = new AlarmRegistry(file);
+        registry.put(entry("a", 1000));
+        registry.put(entry("b", 2000));
+
+        // Killed in the middle of writing the last record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        AlarmRegistry reloaded = new AlarmRegistry(file);
+        assertEquals(1, reloaded.size());
+        assertEquals(1000, reloaded.get("a").triggerAtMillis);
+
+        // The next write drops the torn record for good
+        reloaded.put(entry("c", 3000));
+        AlarmRegistry again = new AlarmRegistry(file);
+        assertEquals(2, again.size());
+        assertEquals(3000, again.get("c").triggerAtMillis);
+    }
+
+    @Test
+    public void compactsLogOfChurn() {
+        AlarmRegistry registry = new AlarmRegistry(file);
+        registry.put(entry("keep", 1000));
+        long compacted = file.length();
+
+        for (int i = 0; i < 500; i++) {
+            registry.put(entry("churn", i));
+            registry.remove("churn");
+        }
+
+        // A thousand appended records would be far larger; the log stays near its live size
+        assertTrue(file.length() < compacted * 200);
+        AlarmRegistry reloaded = new AlarmRegistry(file);
+        assertEquals(1, reloaded.size());
+        assertEquals(1000, reloaded.get("keep").triggerAtMillis);
+    }
+
+    @Test
+    public void migratesVersion3WithoutSnoozeCount() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x46414D5A);
+            out.writeInt(3);
+            out.writeByte(1);
+            out.writeInt(7);
+            out.writeUTF("a#snooze");
+            out.writeLong(1000);
+            out.writeUTF("video.mp4");
+            out.writeUTF("");
+            out.writeByte(0);
+            out.writeByte(-1);
+            out.writeByte(-1);
+            out.writeUTF("a");
+            out.writeByte(AlarmBackend.EXACT.ordinal());
+        }
+
+        AlarmRegistry registry = new AlarmRegistry(file);
+        AlarmEntry slot = registry.get("a#snooze");
+        assertEquals(7, slot.code);
+        assertEquals("a", slot.recurringId);
+        assertEquals(0, slot.snoozeCount);
+
+        // The next write rewrites the log as version 4, which keeps the count
+        registry.put(new AlarmEntry(slot.code, slot.alarmId, 2000, slot.videoPath, null, 0,
+                -1, -1, slot.recurringId, slot.backend, 2));
+        AlarmRegistry reloaded = new AlarmRegistry(file);
+        assertEquals(2, reloaded.get("a#snooze").snoozeCount);
+        assertEquals(2000, reloaded.get("a#snooze").triggerAtMillis);
+        assertEquals(Arrays.asList("a#snooze"), reloaded.group("a"));
+    }
+
+    private static AlarmEntry entry(String alarmId, long triggerAtMillis) {
+        return new AlarmEntry(alarmId, triggerAtMillis, "video.mp4", null, 0, -1, -1, null);
+    }
+}
@@ -0,0 +1,57 @@
+package com.app.famz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PrefetchTierTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void tierFollowsTimeLeft() {
+        assertEquals(PrefetchTier.RELAXED, PrefetchTier.forRemaining(7 * HOUR));
+        assertEquals(PrefetchTier.NORMAL, PrefetchTier.forRemaining(6 * HOUR));
+        assertEquals(PrefetchTier.NORMAL, PrefetchTier.forRemaining(2 * HOUR));
+        assertEquals(PrefetchTier.URGENT, PrefetchTier.forRemaining(HOUR));
+        assertEquals(PrefetchTier.URGENT, PrefetchTier.forRemaining(-1));
+    }
+
+    @Test
+    public void escalatesAtNextTier() {
+        assertEquals(HOUR, PrefetchTier.escalatesInMillis(7 * HOUR));
+        assertEquals(HOUR, PrefetchTier.escalatesInMillis(2 * HOUR));
+        assertEquals(0, PrefetchTier.escalatesInMillis(HOUR / 2));
+    }
+
+    @Test
+    public void onlyRelaxedWaitsForCheapNetwork() {
+        assertFalse(PrefetchTier.RELAXED.allows(true, false));
+        assertTrue(PrefetchTier.RELAXED.allows(true, true));
+        assertTrue(PrefetchTier.RELAXED.allows(false, false));
+        assertTrue(PrefetchTier.NORMAL.allows(true, false));
+        assertTrue(PrefetchTier.URGENT.allows(true, false));
+    }
+
+    @Test
+    public void deadlineIsEarliestAlarmUsingVideo() {
+        Map<String, Long> deadlines = PrefetchTier.deadlines(Arrays.asList(
+                entry("a", 3000, "https://example.com/1.mp4"),
+                entry("b", 1000, "https://example.com/1.mp4"),
+                entry("c", 2000, "https://example.com/2.mp4"),
+                entry("d", 500, "/data/local.mp4")),
+                source -> source.startsWith("https://"));
+
+        assertEquals(2, deadlines.size());
+        assertEquals(1000L, (long) deadlines.get("https://example.com/1.mp4"));
+        assertEquals(2000L, (long) deadlines.get("https://example.com/2.mp4"));
+    }
+
+    private static AlarmEntry entry(String alarmId, long triggerAtMillis, String videoPath) {
+        return new AlarmEntry(alarmId, triggerAtMillis, videoPath, null, 0, -1, -1, null);
+    }
+}
@@ -0,0 +1,208 @@
+package com.app.famz;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RangeDownloaderTest {
+    private static final int SIZE = 200 * 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] video = new byte[SIZE];
+    private HttpServer server;
+    private String url;
+    private File part;
+
+    // What the stub serves and saw last
+    private volatile String etag = "\"v1\"";
+    private volatile int cutAfter = -1;
+    private volatile String lastRange;
+    private volatile String lastIfRange;
+    private volatile int lastStatus;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(7).nextBytes(video);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/video.mp4", this::serve);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/video.mp4";
+        part = new File(folder.getRoot(), "video.mp4.part");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void downloadsWholeFile() throws IOException {
+        assertEquals(SIZE, downloader().download(url, part));
+
+        assertEquals(200, lastStatus);
+        assertNull(lastRange);
+        assertArrayEquals(video, Files.readAllBytes(part.toPath()));
+        assertFalse(meta().exists());
+    }
+
+    @Test
+    public void keepsReceivedBytesWhenTransferBreaks() throws IOException {
+        cutAfter = SIZE / 2;
+        try {
+            downloader().download(url, part);
+            fail("Expected the broken transfer to fail");
+        } catch (IOException expected) {
+            // The partial file stays for the next attempt
+        }
+        assertTrue(part.length() > 0 && part.length() < SIZE);
+        assertEquals(etag, new String(Files.readAllBytes(meta().toPath()), StandardCharsets.UTF_8));
+
+        cutAfter = -1;
+        long have = part.length();
+        assertEquals(SIZE, downloader().download(url, part));
+
+        assertEquals(206, lastStatus);
+        assertEquals("bytes=" + have + "-", lastRange);
+        assertArrayEquals(video, Files.readAllBytes(part.toPath()));
+    }
+
+    @Test
+    public void resumesPartialFileWithRange() throws IOException {
+        seed(Arrays.copyOf(video, 1000), etag);
+
+        assertEquals(SIZE, downloader().download(url, part));
+
+        assertEquals(206, lastStatus);
+        assertEquals("bytes=1000-", lastRange);
+        assertEquals("\"v1\"", lastIfRange);
+        assertArrayEquals(video, Files.readAllBytes(part.toPath()));
+        assertFalse(meta().exists());
+    }
+
+    @Test
+    public void changedValidatorStartsOver() throws IOException {
+        // Received from an older version of the video
+        byte[] stale = new byte[1000];
+        Arrays.fill(stale, (byte) 1);
+        seed(stale, "\"v0\"");
+
+        assertEquals(SIZE, downloader().download(url, part));
+
+        // If-Range didn't match, so the server sent the whole new file
+        assertEquals("\"v0\"", lastIfRange);
+        assertEquals(200, lastStatus);
+        assertArrayEquals(video, Files.readAllBytes(part.toPath()));
+    }
+
+    @Test
+    public void rangeNotSatisfiableForCompleteFile() throws IOException {
+        // Everything arrived but the completion was lost
+        seed(video, etag);
+
+        assertEquals(SIZE, downloader().download(url, part));
+
+        assertEquals(416, lastStatus);
+        assertArrayEquals(video, Files.readAllBytes(part.toPath()));
+        assertFalse(meta().exists());
+    }
+
+    @Test
+    public void rangeNotSatisfiableForOtherLengthDiscardsPart() throws IOException {
+        seed(new byte[SIZE + 10], etag);
+
+        try {
+            downloader().download(url, part);
+            fail("Expected HTTP 416 to fail");
+        } catch (IOException expected) {
+            // The partial file can't be trusted
+        }
+        assertEquals(416, lastStatus);
+        assertFalse(part.exists());
+        assertFalse(meta().exists());
+    }
+
+    private RangeDownloader downloader() {
+        return new RangeDownloader(5000, 5000);
+    }
+
+    private File meta() {
+        return new File(part.getPath() + ".meta");
+    }
+
+    private void seed(byte[] received, String validator) throws IOException {
+        try (OutputStream out = new FileOutputStream(part)) {
+            out.write(received);
+        }
+        try (OutputStream out = new FileOutputStream(meta())) {
+            out.write(validator.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Serves {@link #video} like a static file server: byte ranges, If-Range and 416.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        lastRange = exchange.getRequestHeaders().getFirst("Range");
+        lastIfRange = exchange.getRequestHeaders().getFirst("If-Range");
+        exchange.getResponseHeaders().set("ETag", etag);
+
+        int start = 0;
+        if (lastRange != null && (lastIfRange == null || lastIfRange.equals(etag))) {
+            start = Integer.parseInt(lastRange.substring("bytes=".length(), lastRange.indexOf('-')));
+        }
+
+        if (start >= SIZE) {
+            exchange.getResponseHeaders().set("Content-Range", "bytes */" + SIZE);
+            respond(exchange, 416, -1);
+            exchange.close();
+            return;
+        }
+
+        int status = start > 0 ? 206 : 200;
+        if (start > 0) {
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + start + "-" + (SIZE - 1) + "/" + SIZE);
+        }
+        respond(exchange, status, SIZE - start);
+
+        OutputStream body = exchange.getResponseBody();
+        int end = cutAfter >= 0 ? Math.min(SIZE, start + cutAfter) : SIZE;
+        try {
+            body.write(video, start, end - start);
+            body.flush();
+        } finally {
+            // Closing short of the announced length drops the connection
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, long length) throws IOException {
+        lastStatus = status;
+        exchange.sendResponseHeaders(status, length);
+    }
+}
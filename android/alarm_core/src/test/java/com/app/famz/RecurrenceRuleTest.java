@@ -0,0 +1,82 @@
+package com.app.famz;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+public class RecurrenceRuleTest {
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    // Dart weekday indexes
+    private static final int MONDAY = 0;
+    private static final int SATURDAY = 5;
+    private static final int SUNDAY = 6;
+
+    @Test
+    public void springForwardGapFiresWhenGapEnds() {
+        // 2024-03-10 (a Sunday): 02:00 EST jumps to 03:00 EDT, so 02:30 never happens
+        RecurrenceRule rule = new RecurrenceRule(1 << SUNDAY, 2, 30, NEW_YORK);
+
+        long fire = rule.nextAfter(at(NEW_YORK, 2024, 3, 9, 12, 0));
+
+        assertEquals(instant("2024-03-10T03:00-04:00"), fire);
+    }
+
+    @Test
+    public void fallBackOverlapFiresOnceAtFirstOccurrence() {
+        // 2024-11-03 (a Sunday): 01:00-02:00 happens first in EDT, then again in EST
+        RecurrenceRule rule = new RecurrenceRule(1 << SUNDAY, 1, 30, NEW_YORK);
+
+        long first = rule.nextAfter(at(NEW_YORK, 2024, 11, 2, 12, 0));
+        assertEquals(instant("2024-11-03T01:30-04:00"), first);
+
+        // The repeated 01:30 an hour later is not a second fire; the next one is a week on
+        long next = rule.nextAfter(first);
+        assertEquals(instant("2024-11-10T01:30-05:00"), next);
+    }
+
+    @Test
+    public void weekdayMaskRollsOverWeekBoundary() {
+        RecurrenceRule monday = new RecurrenceRule(1 << MONDAY, 7, 0, ZoneOffset.UTC);
+        // 2024-03-16 is a Saturday
+        assertEquals(instant("2024-03-18T07:00Z"),
+                monday.nextAfter(at(ZoneOffset.UTC, 2024, 3, 16, 9, 0)));
+
+        RecurrenceRule weekend = new RecurrenceRule(1 << SATURDAY | 1 << SUNDAY, 7, 0, ZoneOffset.UTC);
+        // Sunday after the alarm: next Saturday, not a day of this week
+        assertEquals(instant("2024-03-23T07:00Z"),
+                weekend.nextAfter(at(ZoneOffset.UTC, 2024, 3, 17, 9, 0)));
+    }
+
+    @Test
+    public void sameMinuteAlreadyPassedMovesToNextSelectedDay() {
+        RecurrenceRule daily = new RecurrenceRule(RecurrenceRule.ALL_DAYS, 7, 0, ZoneOffset.UTC);
+        long today = at(ZoneOffset.UTC, 2024, 3, 13, 7, 0);
+
+        assertEquals(today, daily.nextAfter(today - 1));
+        // Strictly after: a fire time equal to now has passed
+        assertEquals(today + 24 * 60 * 60 * 1000L, daily.nextAfter(today));
+
+        // Only today selected: the same minute next week
+        RecurrenceRule wednesday = new RecurrenceRule(1 << 2, 7, 0, ZoneOffset.UTC);
+        assertEquals(today + 7 * 24 * 60 * 60 * 1000L, wednesday.nextAfter(today + 30 * 1000L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyMask() {
+        new RecurrenceRule(0, 7, 0, ZoneOffset.UTC);
+    }
+
+    private static long at(ZoneId zone, int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static long instant(String offsetDateTime) {
+        return OffsetDateTime.parse(offsetDateTime).toInstant().toEpochMilli();
+    }
+}
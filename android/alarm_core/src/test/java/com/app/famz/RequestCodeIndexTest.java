@@ -0,0 +1,54 @@
+package com.app.famz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class RequestCodeIndexTest {
+    @Test
+    public void reusesLowestFreedCode() {
+        RequestCodeIndex index = new RequestCodeIndex();
+        assertEquals(1, index.assign("a", null, RequestCodeIndex.NO_CODE));
+        assertEquals(2, index.assign("b", null, RequestCodeIndex.NO_CODE));
+        assertEquals(3, index.assign("c", null, RequestCodeIndex.NO_CODE));
+
+        index.release("b", null);
+        index.release("a", null);
+
+        assertEquals(RequestCodeIndex.NO_CODE, index.codeFor("a"));
+        assertEquals(1, index.assign("d", null, RequestCodeIndex.NO_CODE));
+        assertEquals(2, index.assign("e", null, RequestCodeIndex.NO_CODE));
+        assertEquals(4, index.assign("f", null, RequestCodeIndex.NO_CODE));
+        // Assigning again returns the code already issued
+        assertEquals(3, index.assign("c", null, RequestCodeIndex.NO_CODE));
+    }
+
+    @Test
+    public void honoursStoredCodeOnlyWhileFree() {
+        RequestCodeIndex index = new RequestCodeIndex();
+        assertEquals(5, index.assign("a", null, 5));
+        // Taken, and the slot code is never handed out
+        assertEquals(1, index.assign("b", null, 5));
+        assertEquals(2, index.assign("c", null, RequestCodeIndex.SLOT_CODE));
+    }
+
+    @Test
+    public void groupsFollowAssignAndRelease() {
+        RequestCodeIndex index = new RequestCodeIndex();
+        index.assign("w-mon", "w", RequestCodeIndex.NO_CODE);
+        index.assign("w-tue", "w", RequestCodeIndex.NO_CODE);
+        index.assign("other", null, RequestCodeIndex.NO_CODE);
+
+        assertEquals(new HashSet<>(Arrays.asList("w-mon", "w-tue")), index.group("w"));
+
+        index.release("w-mon", "w");
+        assertEquals(new HashSet<>(Arrays.asList("w-tue")), index.group("w"));
+        index.release("w-tue", "w");
+        assertTrue(index.group("w").isEmpty());
+        assertTrue(index.group("unknown").isEmpty());
+    }
+}
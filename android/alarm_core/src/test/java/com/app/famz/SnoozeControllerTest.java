@@ -0,0 +1,117 @@
+package com.app.famz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnoozeControllerTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MINUTE = 60 * 1000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private AlarmEngine engine;
+
+    @Before
+    public void setUp() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+        AlarmRegistry registry = new AlarmRegistry(new File(folder.getRoot(), "alarms.bin"));
+        engine = new AlarmEngine(registry, new AlarmEngine.Slot() {
+            @Override
+            public void arm(AlarmBackend backend, AlarmEntry head, int pending) {
+            }
+
+            @Override
+            public void cancel(AlarmBackend backend) {
+            }
+        }, clock, 0);
+    }
+
+    @Test
+    public void slotIdStaysStableAcrossChain() {
+        SnoozeController snoozer = snoozer(3);
+        AlarmEntry alarm = entry("x");
+
+        AlarmEntry first = snoozer.snoozeAll(Collections.singletonList(alarm)).get(0);
+        assertEquals("x#snooze", first.alarmId);
+        assertEquals("x", first.recurringId);
+        assertEquals(1, first.snoozeCount);
+        assertEquals(NOW + 9 * MINUTE, first.triggerAtMillis);
+
+        // Snoozing the ringing slot moves it rather than nesting the suffix
+        AlarmEntry second = snoozer.snoozeAll(Collections.singletonList(first)).get(0);
+        assertEquals("x#snooze", second.alarmId);
+        assertEquals(first.code, second.code);
+        assertEquals(2, second.snoozeCount);
+        assertEquals(Arrays.asList("x#snooze"), engine.getRegistry().group("x"));
+        assertEquals("x#snooze", SnoozeController.slotId("x#snooze"));
+    }
+
+    @Test
+    public void chainStopsAtMaxCount() {
+        SnoozeController snoozer = snoozer(2);
+        AlarmEntry ringing = entry("x");
+
+        ringing = snoozer.snoozeAll(Collections.singletonList(ringing)).get(0);
+        ringing = snoozer.snoozeAll(Collections.singletonList(ringing)).get(0);
+        assertEquals(2, ringing.snoozeCount);
+
+        assertFalse(snoozer.canSnooze(ringing));
+        assertTrue(snoozer.snoozeAll(Collections.singletonList(ringing)).isEmpty());
+        assertEquals(2, engine.getRegistry().get("x#snooze").snoozeCount);
+    }
+
+    @Test
+    public void zeroMaxCountIsUnlimited() {
+        SnoozeController snoozer = snoozer(0);
+        AlarmEntry ringing = entry("x");
+
+        for (int i = 1; i <= 20; i++) {
+            List<AlarmEntry> slots = snoozer.snoozeAll(Collections.singletonList(ringing));
+            assertEquals(1, slots.size());
+            ringing = slots.get(0);
+            assertEquals(i, ringing.snoozeCount);
+        }
+    }
+
+    @Test
+    public void scheduleKeepsPendingCount() {
+        SnoozeController snoozer = snoozer(3);
+        AlarmEntry alarm = entry("x");
+        AlarmEntry ringing = snoozer.snoozeAll(Collections.singletonList(alarm)).get(0);
+        snoozer.snoozeAll(Collections.singletonList(ringing));
+
+        // Moving the pending snooze from outside the ringing screen doesn't advance the chain
+        AlarmEntry moved = snoozer.schedule(alarm, NOW + 30 * MINUTE);
+        assertEquals(2, moved.snoozeCount);
+        assertEquals(NOW + 30 * MINUTE, moved.triggerAtMillis);
+
+        assertTrue(snoozer.cancel("x"));
+        assertNull(engine.getRegistry().get("x#snooze"));
+        assertEquals(1, snoozer.schedule(alarm, NOW + 5 * MINUTE).snoozeCount);
+    }
+
+    private SnoozeController snoozer(int maxCount) {
+        return new SnoozeController(engine, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC),
+                SnoozeController.DEFAULT_DURATION_MS, maxCount);
+    }
+
+    private static AlarmEntry entry(String alarmId) {
+        return new AlarmEntry(alarmId, NOW, "video.mp4", null, 0, -1, -1, null);
+    }
+}
@@ -1,84 +1,187 @@
 package com.app.famz;
 
-import android.app.AlarmManager;
 import android.app.KeyguardManager;
-import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.media.AudioManager;
-import android.media.MediaPlayer;
-import android.net.Uri;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
 import android.util.Log;
+import android.view.TextureView;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
-import android.widget.VideoView;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class AlarmActivity extends AppCompatActivity {
     private static final String TAG = "AlarmActivity";
-    private static final int SNOOZE_DURATION = 9 * 60 * 1000; // 9 minutes in milliseconds
+    private static final long POSTER_FADE_MS = 300;
+    private static final String TRACE_FIRST_DRAW = "AlarmActivity.firstDraw";
 
-    private VideoView videoView;
+    private static Handler startupHandler;
+
+    private AlarmVideoPlayer videoPlayer;
+    private AlarmVideoPlayer.Listener videoListener;
+    private TextureView videoFrontView;
+    private TextureView videoBackView;
+    private ImageView posterView;
     private TextView timeTextView;
     private TextView dateTextView;
     private ImageView logoImageView;
     private Button snoozeButton;
     private Button stopButton;
 
+    private static final long[] VIBRATION_PATTERN = {0, 1000, 1000}; // Start, vibrate, sleep
+
     private Vibrator vibrator;
-    private MediaPlayer mediaPlayer;
-    private Handler timeHandler;
-    private Runnable timeRunnable;
-    private boolean isAlarmStopped = false;
-    private String alarmId;
+    private long vibratingSince;
+    private AlarmAudioEngine audioEngine;
+    private MinuteClock clock;
+    // Also read on the startup thread
+    private volatile boolean isAlarmStopped = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ViewTreeObserver.OnDrawListener firstDrawListener;
+    private AlarmSession session;
+    private AlarmSession.Listener sessionListener;
+    private final List<AlarmSession.Item> items = new ArrayList<>();
+    private boolean audioFallback = false;
+    private boolean firstFrameRecorded = false;
+    private boolean videoRendering = false;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
+        Trace.beginSection("AlarmActivity.onCreate");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_FIRST_DRAW, System.identityHashCode(this));
+        }
         super.onCreate(savedInstanceState);
 
+        // Every alarm of the ringing session, including ones that fired while this screen
+        // was starting
+        session = AlarmSession.getInstance();
+        items.addAll(session.items());
+        if (items.isEmpty()) {
+            items.add(AlarmSession.Item.fromIntent(getIntent(), 0));
+        }
+
+        // Get playback going on the startup thread so it overlaps inflation
+        startPipeline();
+
+        // Alarms firing from now on join this screen instead of relaunching it
+        sessionListener = this::onAlarmJoined;
+        session.setListener(sessionListener);
+
         // Set up to show on lock screen
         setupShowOnLockScreen();
 
+        Trace.beginSection("AlarmActivity.inflate");
         setContentView(R.layout.activity_alarm);
+        initializeViews();
+        Trace.endSection();
 
-        String videoPath = getIntent().getStringExtra("videoPath");
-        alarmId = getIntent().getStringExtra("alarmId");
+        // Hand the surfaces to the already-preparing player
+        videoPlayer.attach(videoFrontView, videoBackView);
 
-        Log.d(TAG, "Alarm activity started with video: " + videoPath);
+        // Start time updates; the first frame shows the time
+        startTimeUpdates();
 
-        // Initialize UI components
-        initializeViews();
+        // Set up button listeners
+        setupButtonListeners();
 
-        // Start time updates
-        startTimeUpdates();
+        // Keyguard dismissal and vibration wait until the alarm is on screen
+        runAfterFirstDraw(this::onFirstDraw);
+        Trace.endSection();
+    }
 
-        // Start vibration
-        startVibration();
+    /**
+     * Background thread for the startup work of the alarm screen, also used by
+     * {@link AlarmVideoPlayer} to load the next playlist video. It is kept for later alarms,
+     * so only the first one pays for starting it.
+     */
+    static synchronized Handler startupHandler() {
+        if (startupHandler == null) {
+            HandlerThread thread = new HandlerThread("AlarmStartup", Process.THREAD_PRIORITY_FOREGROUND);
+            thread.start();
+            startupHandler = new Handler(thread.getLooper());
+        }
+        return startupHandler;
+    }
 
-        // Set up video
-        setupVideo(videoPath);
+    /**
+     * Queues the poster decode, video preparation and the startup bookkeeping on the startup
+     * thread, in that order, and loads the fallback sound on the audio thread. The poster is
+     * posted to the main thread when decoded; nothing on the main thread waits for it.
+     */
+    private void startPipeline() {
+        Trace.beginSection("AlarmActivity.startPipeline");
 
-        // Set up button listeners
-        setupButtonListeners();
+        // Have the fallback sound ready in case the video fails
+        audioEngine = AlarmAudioEngine.getInstance(this);
+        audioEngine.preload();
+
+        videoPlayer = AlarmVideoPlayer.getInstance();
+        videoListener = new AlarmVideoPlayer.Listener() {
+            @Override
+            public void onFirstFrame(long timeToFirstFrameMs) {
+                for (AlarmSession.Item item : items) {
+                    journal(AlarmJournal.EVENT_FIRST_FRAME, item, AlarmJournal.RESULT_OK,
+                            timeToFirstFrameMs);
+                }
+                recordFirstFrame();
+                videoRendering = true;
+                hidePoster();
+            }
+
+            @Override
+            public void onError() {
+                // Fall back to audio only
+                playFallbackAudio();
+            }
+        };
+
+        // Alarms joining later are handled by onAlarmJoined
+        List<AlarmSession.Item> starting = new ArrayList<>(items);
+        long startedElapsed = SystemClock.elapsedRealtime();
+        long startedAt = System.currentTimeMillis();
+
+        Handler startup = startupHandler();
+        // The poster is a small decode and usually lands before the first draw
+        startup.post(() -> {
+            Bitmap poster = loadPoster(starting.get(0));
+            if (poster != null) {
+                mainHandler.post(() -> showPoster(poster));
+            }
+        });
+        startup.post(() -> setupVideo(starting));
+        startup.post(() -> recordStarted(starting, startedElapsed, startedAt));
+
+        Trace.endSection();
     }
 
     private void initializeViews() {
-        videoView = findViewById(R.id.videoView);
+        videoFrontView = findViewById(R.id.videoTextureFront);
+        videoBackView = findViewById(R.id.videoTextureBack);
+        posterView = findViewById(R.id.posterImageView);
         timeTextView = findViewById(R.id.timeTextView);
         dateTextView = findViewById(R.id.dateTextView);
 //        logoImageView = findViewById(R.id.logoImageView);
@@ -87,54 +190,168 @@ public class AlarmActivity extends AppCompatActivity {
     }
 
     private void startTimeUpdates() {
-        timeHandler = new Handler();
-        timeRunnable = new Runnable() {
-            @Override
-            public void run() {
-                updateDateTime();
-                timeHandler.postDelayed(this, 1000); // Update every second
+        clock = new MinuteClock(this, timeTextView, dateTextView);
+        clock.start();
+    }
+
+    /**
+     * Runs on the startup thread: resolves the cached videos and starts the decoders.
+     */
+    private void setupVideo(List<AlarmSession.Item> starting) {
+        Trace.beginSection("AlarmStartup.setupVideo");
+        List<String> videoPaths = new ArrayList<>(starting.size());
+        for (AlarmSession.Item item : starting) {
+            String videoPath = playablePath(item);
+            if (videoPath != null) {
+                videoPaths.add(videoPath);
             }
-        };
-        timeHandler.post(timeRunnable);
+        }
+        if (!videoPaths.isEmpty()) {
+            if (!isAlarmStopped) {
+                videoPlayer.prepare(this, videoPaths, videoListener);
+                // A stop that came before prepare took over the player had nothing to stop
+                if (isAlarmStopped) {
+                    videoPlayer.stop(videoListener);
+                }
+            }
+        } else {
+            // No video path, fall back to audio
+            runOnUiThread(this::playFallbackAudio);
+        }
+        Trace.endSection();
     }
 
-    private void updateDateTime() {
-        Date now = new Date();
+    /**
+     * Runs on the startup thread, after the decoders were started.
+     */
+    private void recordStarted(List<AlarmSession.Item> starting, long startedElapsed, long startedAt) {
+        Trace.beginSection("AlarmStartup.record");
+        AlarmLatencyTracker latencyTracker = AlarmLatencyTracker.getInstance(this);
+        for (AlarmSession.Item item : starting) {
+            if (item.triggerElapsed > 0) {
+                latencyTracker.recordDelay(item.statsKey, LatencyStats.HOP_ACTIVITY,
+                        startedElapsed - item.triggerElapsed);
+            }
+            journal(AlarmJournal.EVENT_ACTIVITY, item, AlarmJournal.RESULT_OK,
+                    startedAt - item.triggerAtMillis);
+        }
+        Trace.endSection();
+    }
 
-        // Format time (HH:mm)
-        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-        timeTextView.setText(timeFormat.format(now));
+    /**
+     * The app-private copy made when the alarm was scheduled, or null without a video.
+     */
+    private String playablePath(AlarmSession.Item item) {
+        if (item.videoPath == null || item.videoPath.isEmpty()) return null;
+        return AlarmVideoCache.getInstance(this).resolve(item.videoPath);
+    }
 
-        // Format date (e.g., "Monday, January 15")
-        SimpleDateFormat dateFormat = new SimpleDateFormat("EEEE, MMMM d", Locale.getDefault());
-        dateTextView.setText(dateFormat.format(now));
+    private void journal(int event, AlarmSession.Item item, int result, long value) {
+        AlarmEventLog.getInstance(this).record(event, item.code, result, value);
     }
 
-    private void setupVideo(String videoPath) {
-        if (videoPath != null && !videoPath.isEmpty()) {
-            try {
-                Uri videoUri = Uri.parse(videoPath);
-                videoView.setVideoURI(videoUri);
-                videoView.setOnPreparedListener(mp -> {
-                    mp.setLooping(true);
-                    videoView.start();
-                });
-                videoView.setOnErrorListener((mp, what, extra) -> {
-                    Log.e(TAG, "Video error: " + what + ", " + extra);
-                    // Fall back to audio only
-                    playFallbackAudio();
-                    return true;
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "Error playing video", e);
-                playFallbackAudio();
-            }
-        } else {
-            // No video path, fall back to audio
-            playFallbackAudio();
+    private void onAlarmJoined(AlarmSession.Item item) {
+        if (isAlarmStopped) return;
+
+        items.add(item);
+        AlarmLatencyTracker latencyTracker = AlarmLatencyTracker.getInstance(this);
+        latencyTracker.record(item.statsKey, LatencyStats.HOP_ACTIVITY, item.triggerElapsed);
+        if (firstFrameRecorded) {
+            // Already ringing; the joining alarm is audible right away
+            latencyTracker.record(item.statsKey, LatencyStats.HOP_FIRST_FRAME, item.triggerElapsed);
+        }
+        if (firstDrawListener == null) {
+            updateSnoozeButton();
+        }
+
+        if (!audioFallback) {
+            // Queued behind the startup work, so the playlist to append to exists
+            startupHandler().post(() -> {
+                String videoPath = playablePath(item);
+                if (videoPath != null) {
+                    videoPlayer.append(videoPath);
+                }
+            });
+        }
+    }
+
+    private Bitmap loadPoster(AlarmSession.Item item) {
+        Trace.beginSection("AlarmStartup.decodePoster");
+        try {
+            // Extracted when the alarm was scheduled
+            String posterPath = AlarmVideoCache.getInstance(this).resolvePoster(item.videoPath);
+            if (posterPath == null) return null;
+
+            long started = SystemClock.uptimeMillis();
+            Bitmap poster = decodePoster(posterPath);
+            PowerStats.getInstance(this).add(PowerLedger.DECODE_MS,
+                    SystemClock.uptimeMillis() - started);
+            return poster;
+        } finally {
+            Trace.endSection();
         }
     }
 
+    private static Bitmap decodePoster(String posterPath) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // Opaque video frame; half the memory and decode time of ARGB_8888
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeFile(posterPath, options);
+    }
+
+    private void showPoster(Bitmap poster) {
+        // Too late once the video renders or the screen is gone
+        if (isAlarmStopped || isDestroyed() || videoRendering) return;
+
+        posterView.setImageBitmap(poster);
+        posterView.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Runs {@code work} on the main thread once the window has drawn its first frame.
+     */
+    private void runAfterFirstDraw(Runnable work) {
+        View decor = getWindow().getDecorView();
+        firstDrawListener = () -> mainHandler.postAtFrontOfQueue(() -> {
+            // Draw listeners can't be removed while the tree is drawing
+            if (firstDrawListener == null) return;
+            decor.getViewTreeObserver().removeOnDrawListener(firstDrawListener);
+            firstDrawListener = null;
+            work.run();
+        });
+        decor.getViewTreeObserver().addOnDrawListener(firstDrawListener);
+    }
+
+    private void onFirstDraw() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_FIRST_DRAW, System.identityHashCode(this));
+        }
+        if (isAlarmStopped) return;
+
+        Trace.beginSection("AlarmActivity.deferred");
+        dismissKeyguard();
+        updateSnoozeButton();
+
+        // Start vibration
+        startVibration();
+        Trace.endSection();
+    }
+
+    /**
+     * Cross-fades from the poster to the live video once it renders.
+     */
+    private void hidePoster() {
+        if (posterView == null || posterView.getVisibility() != View.VISIBLE) return;
+
+        posterView.animate()
+                .alpha(0f)
+                .setDuration(POSTER_FADE_MS)
+                .withEndAction(() -> {
+                    posterView.setVisibility(View.GONE);
+                    posterView.setImageDrawable(null);
+                });
+    }
+
     private void setupButtonListeners() {
         snoozeButton.setOnClickListener(v -> snoozeAlarm());
 
@@ -144,57 +361,77 @@ public class AlarmActivity extends AppCompatActivity {
         });
     }
 
-    private void snoozeAlarm() {
-        Log.d(TAG, "Snoozing alarm for 9 minutes");
+    /**
+     * Disables snoozing once every ringing alarm has been snoozed as often as allowed.
+     */
+    private void updateSnoozeButton() {
+        SnoozeController snoozer = AlarmScheduler.getInstance(this).getSnoozer();
+        boolean canSnooze = false;
+        for (AlarmSession.Item item : items) {
+            canSnooze |= snoozer.canSnooze(item.toEntry());
+        }
+        snoozeButton.setEnabled(canSnooze);
+    }
 
+    private void snoozeAlarm() {
         // Stop current alarm
         stopAlarmComponents();
 
         // Schedule snooze alarm
         scheduleSnoozeAlarm();
 
+        // End this ringing session; the snooze alarm starts a new one
+        AlarmWakeLock.getInstance(this).onSnoozed();
+        stopService(new Intent(this, AlarmService.class));
+
         // Finish activity
         finishAndRemoveTask();
     }
 
     private void scheduleSnoozeAlarm() {
         try {
-            // Calculate snooze time
-            long snoozeTime = System.currentTimeMillis() + SNOOZE_DURATION;
-
-            // Create snooze alarm
-            AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-            Intent intent = new Intent(this, AlarmReceiver.class);
-            intent.setAction(AlarmReceiver.ACTION_ALARM);
-            intent.putExtra("alarmId", alarmId + "_snooze_" + System.currentTimeMillis());
-            intent.putExtra("videoPath", getIntent().getStringExtra("videoPath"));
-            intent.putExtra("isSnooze", true);
-
-            int requestCode = (alarmId + "_snooze").hashCode();
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(
-                        AlarmManager.RTC_WAKEUP,
-                        snoozeTime,
-                        pendingIntent);
-            } else {
-                alarmManager.setExact(
-                        AlarmManager.RTC_WAKEUP,
-                        snoozeTime,
-                        pendingIntent);
+            // Every alarm of the session moves its snooze slot; they ring together again
+            List<AlarmEntry> ringing = new ArrayList<>(items.size());
+            for (AlarmSession.Item item : items) {
+                ringing.add(item.toEntry());
+            }
+            Map<String, AlarmEntry> slots = new HashMap<>();
+            for (AlarmEntry slot : AlarmScheduler.getInstance(this).getSnoozer().snoozeAll(ringing)) {
+                slots.put(slot.alarmId, slot);
             }
 
-            Log.d(TAG, "Snooze alarm scheduled for: " + new Date(snoozeTime));
+            for (AlarmSession.Item item : items) {
+                AlarmEntry slot = slots.get(SnoozeController.slotId(item.alarmId));
+                if (slot == null) {
+                    // Snoozed as often as allowed; this alarm is done
+                    journal(AlarmJournal.EVENT_STOPPED, item, AlarmJournal.RESULT_OK, 0);
+                    AlarmEventStream.getInstance().emit(AlarmEventStream.TYPE_STOPPED, item.alarmId, null);
+                    continue;
+                }
+                journal(AlarmJournal.EVENT_SNOOZED, item, AlarmJournal.RESULT_OK, slot.triggerAtMillis);
+
+                Map<String, Object> extras = new HashMap<>();
+                extras.put("snoozeAlarmId", slot.alarmId);
+                extras.put("triggerAt", slot.triggerAtMillis);
+                extras.put("snoozeCount", slot.snoozeCount);
+                AlarmEventStream.getInstance().emit(AlarmEventStream.TYPE_SNOOZED, item.alarmId, extras);
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error scheduling snooze", e);
+            for (AlarmSession.Item item : items) {
+                journal(AlarmJournal.EVENT_SNOOZED, item, AlarmJournal.RESULT_ERROR, 0);
+            }
         }
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        // The visible alarm window keeps the device awake; the CPU wake lock is not needed
+        AlarmWakeLock.getInstance(this).onAlarmVisible();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -202,10 +439,21 @@ public class AlarmActivity extends AppCompatActivity {
         if (!isAlarmStopped) {
             stopAlarmComponents();
         }
+        session.clearListener(sessionListener);
+
+        if (firstDrawListener != null) {
+            getWindow().getDecorView().getViewTreeObserver().removeOnDrawListener(firstDrawListener);
+            firstDrawListener = null;
+        }
 
         // Stop time updates
-        if (timeHandler != null && timeRunnable != null) {
-            timeHandler.removeCallbacks(timeRunnable);
+        if (clock != null) {
+            clock.stop();
+        }
+
+        // Keep the players for the next alarm but let go of this screen's surfaces
+        if (videoPlayer != null) {
+            videoPlayer.detach(videoFrontView);
         }
     }
 
@@ -216,14 +464,11 @@ public class AlarmActivity extends AppCompatActivity {
     }
 
     private void setupShowOnLockScreen() {
+        Trace.beginSection("AlarmActivity.showOnLockScreen");
         // For showing activity on lock screen
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
             setShowWhenLocked(true);
             setTurnScreenOn(true);
-            KeyguardManager keyguardManager = (KeyguardManager) getSystemService(Context.KEYGUARD_SERVICE);
-            if (keyguardManager != null) {
-                keyguardManager.requestDismissKeyguard(this, null);
-            }
         } else {
             Window window = getWindow();
             window.addFlags(WindowManager.LayoutParams.FLAG_SHOW_WHEN_LOCKED
@@ -231,44 +476,86 @@ public class AlarmActivity extends AppCompatActivity {
                     | WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON
                     | WindowManager.LayoutParams.FLAG_TURN_SCREEN_ON);
         }
+        Trace.endSection();
+    }
+
+    /**
+     * Asks for the keyguard to go away; the alarm already shows over it, so this can wait
+     * for the first frame. Older releases dismiss it through the window flag.
+     */
+    private void dismissKeyguard() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            KeyguardManager keyguardManager = (KeyguardManager) getSystemService(Context.KEYGUARD_SERVICE);
+            if (keyguardManager != null) {
+                keyguardManager.requestDismissKeyguard(this, null);
+            }
+        }
     }
 
     private void startVibration() {
         vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
 
-        long[] pattern = {0, 1000, 1000}; // Start, vibrate, sleep
-
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            vibrator.vibrate(VibrationEffect.createWaveform(pattern, 0));
+            vibrator.vibrate(VibrationEffect.createWaveform(VIBRATION_PATTERN, 0));
         } else {
-            vibrator.vibrate(pattern, 0);
+            vibrator.vibrate(VIBRATION_PATTERN, 0);
         }
+        vibratingSince = SystemClock.elapsedRealtime();
     }
 
-    private void playFallbackAudio() {
-        try {
-            mediaPlayer = MediaPlayer.create(this, R.raw.alarm_sound);
-            if (mediaPlayer != null) {
-                mediaPlayer.setLooping(true);
-
-                // Set volume to maximum
-                AudioManager audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
-                if (audioManager != null) {
-                    audioManager.setStreamVolume(
-                            AudioManager.STREAM_MUSIC,
-                            audioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC),
-                            0);
-                }
+    /**
+     * Time the motor was on during {@code elapsed} ms of the repeating off/on pattern.
+     */
+    private static long vibratorOnMillis(long elapsed) {
+        long cycle = 0;
+        for (long step : VIBRATION_PATTERN) {
+            cycle += step;
+        }
+        long on = 0;
+        long remaining = elapsed % cycle;
+        for (int i = 0; i < VIBRATION_PATTERN.length; i++) {
+            // Odd steps are on; the pattern starts with an off step
+            if (i % 2 == 1) {
+                on += elapsed / cycle * VIBRATION_PATTERN[i] + Math.min(remaining, VIBRATION_PATTERN[i]);
+            }
+            remaining = Math.max(0, remaining - VIBRATION_PATTERN[i]);
+        }
+        return on;
+    }
 
-                mediaPlayer.start();
+    private void playFallbackAudio() {
+        if (isAlarmStopped) return;
+
+        audioFallback = true;
+        audioEngine.play(switchOverMs -> {
+            for (AlarmSession.Item item : items) {
+                journal(AlarmJournal.EVENT_AUDIO_FALLBACK, item, AlarmJournal.RESULT_OK, switchOverMs);
+                AlarmEventStream.getInstance().emit(AlarmEventStream.TYPE_AUDIO_FALLBACK,
+                        item.alarmId, "switchOverMs", switchOverMs);
+                AlarmLatencyTracker.getInstance(this).recordDelay(item.statsKey,
+                        LatencyStats.HOP_AUDIO_SWITCH, switchOverMs);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error playing fallback audio", e);
+            recordFirstFrame();
+        });
+    }
+
+    private void recordFirstFrame() {
+        // Whichever of video or fallback audio gets going first counts as the first frame
+        if (firstFrameRecorded) return;
+        firstFrameRecorded = true;
+        AlarmLatencyTracker latencyTracker = AlarmLatencyTracker.getInstance(this);
+        for (AlarmSession.Item item : items) {
+            latencyTracker.record(item.statsKey, LatencyStats.HOP_FIRST_FRAME, item.triggerElapsed);
         }
     }
 
     private void stopAlarm() {
         stopAlarmComponents();
+        for (AlarmSession.Item item : items) {
+            journal(AlarmJournal.EVENT_STOPPED, item, AlarmJournal.RESULT_OK, 0);
+            AlarmEventStream.getInstance().emit(AlarmEventStream.TYPE_STOPPED, item.alarmId, null);
+        }
+        AlarmWakeLock.getInstance(this).onStopped();
 
         // Stop service
         Intent serviceIntent = new Intent(this, AlarmService.class);
@@ -281,24 +568,21 @@ public class AlarmActivity extends AppCompatActivity {
         // Stop vibration
         if (vibrator != null) {
             vibrator.cancel();
+            if (vibratingSince != 0) {
+                PowerStats.getInstance(this).add(PowerLedger.VIBRATOR_MS,
+                        vibratorOnMillis(SystemClock.elapsedRealtime() - vibratingSince));
+                vibratingSince = 0;
+            }
         }
 
         // Stop video
-        if (videoView != null) {
-            videoView.stopPlayback();
+        if (videoPlayer != null) {
+            videoPlayer.stop(videoListener);
         }
 
         // Stop audio
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-                mediaPlayer.release();
-                mediaPlayer = null;
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping media player", e);
-            }
+        if (audioEngine != null) {
+            audioEngine.stop();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,285 @@
+package com.app.famz;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Fallback alarm sound for when the video can't play.
+ *
+ * The sound is decoded once into 16-bit PCM that stays in memory. It plays through an
+ * {@link AudioTrack} on the alarm usage, so it follows the user's alarm volume. A dedicated
+ * audio thread feeds the track in small chunks and raises its volume from a configurable
+ * start level to full over the ramp time. {@link #play} only has to start the track, so the
+ * switch from a failed video to sound costs a thread hop and one buffer.
+ */
+public class AlarmAudioEngine {
+    private static final String TAG = "AlarmAudioEngine";
+    private static final String PREFS_NAME = "alarm_audio";
+    private static final String KEY_START_VOLUME = "ramp_start_volume";
+    private static final String KEY_RAMP_MS = "ramp_ms";
+    private static final float DEFAULT_START_VOLUME = 0.2f;
+    private static final long DEFAULT_RAMP_MS = 10 * 1000L;
+    private static final int CHUNK_MS = 20;
+    private static final long CODEC_TIMEOUT_US = 10 * 1000L;
+    // A codec that never signals end of stream must not hold the audio thread
+    private static final long DECODE_TIMEOUT_MS = 5000;
+
+    public interface Listener {
+        /**
+         * The first audio frame was played, {@code switchOverMs} after {@link #play}. Called
+         * on the main thread.
+         */
+        void onAudible(long switchOverMs);
+    }
+
+    private static AlarmAudioEngine instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Touched only on the audio thread
+    private short[] pcm;
+    private int sampleRate;
+    private int channelCount;
+    private AudioTrack track;
+
+    private volatile boolean playing;
+    private volatile long lastSwitchOverMs = -1;
+
+    private AlarmAudioEngine(Context context) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        HandlerThread thread = new HandlerThread("AlarmAudio", Process.THREAD_PRIORITY_URGENT_AUDIO);
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized AlarmAudioEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmAudioEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public long getLastSwitchOverMs() {
+        return lastSwitchOverMs;
+    }
+
+    /**
+     * Sets the volume ramp: playback starts at {@code startVolume} (0..1) and reaches full
+     * volume after {@code rampMillis}.
+     */
+    public void setVolumeRamp(float startVolume, long rampMillis) {
+        prefs.edit()
+                .putFloat(KEY_START_VOLUME, Math.max(0f, Math.min(1f, startVolume)))
+                .putLong(KEY_RAMP_MS, Math.max(0, rampMillis))
+                .apply();
+    }
+
+    /**
+     * Decodes the sound and opens the track on the audio thread unless already done. Call
+     * as soon as an alarm fires so the work is over before the video can fail.
+     */
+    public void preload() {
+        handler.post(this::load);
+    }
+
+    /**
+     * Starts the looping sound. Safe to call from any thread.
+     */
+    public void play(Listener listener) {
+        long requestedAt = SystemClock.uptimeMillis();
+        playing = true;
+        handler.post(() -> run(requestedAt, listener));
+    }
+
+    public void stop() {
+        // The feeding loop sees the flag within one chunk and pauses the track
+        playing = false;
+    }
+
+    private void load() {
+        if (track != null) return;
+
+        long started = SystemClock.uptimeMillis();
+        try {
+            if (pcm == null) {
+                decode();
+                PowerStats.getInstance(context).add(PowerLedger.DECODE_MS,
+                        SystemClock.uptimeMillis() - started);
+            }
+            track = createTrack();
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading alarm sound", e);
+            pcm = null;
+        }
+    }
+
+    private void decode() throws Exception {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try (AssetFileDescriptor fd = context.getResources().openRawResourceFd(R.raw.alarm_sound)) {
+            extractor.setDataSource(fd.getFileDescriptor(), fd.getStartOffset(), fd.getLength());
+            MediaFormat format = extractor.getTrackFormat(0);
+            extractor.selectTrack(0);
+            sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            short[] out = new short[sampleRate * channelCount * 10];
+            int size = 0;
+            boolean inputDone = false;
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            long deadline = SystemClock.uptimeMillis() + DECODE_TIMEOUT_MS;
+
+            while (true) {
+                if (SystemClock.uptimeMillis() > deadline) {
+                    throw new IOException("No end of stream after " + DECODE_TIMEOUT_MS + " ms");
+                }
+                if (!inputDone) {
+                    int in = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                    if (in >= 0) {
+                        int read = extractor.readSampleData(codec.getInputBuffer(in), 0);
+                        if (read < 0) {
+                            codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(in, 0, read, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int index = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat output = codec.getOutputFormat();
+                    sampleRate = output.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channelCount = output.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                } else if (index >= 0) {
+                    ByteBuffer buffer = codec.getOutputBuffer(index);
+                    buffer.position(info.offset).limit(info.offset + info.size);
+                    ShortBuffer samples = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+                    int count = samples.remaining();
+                    if (size + count > out.length) {
+                        out = Arrays.copyOf(out, Math.max(out.length * 2, size + count));
+                    }
+                    samples.get(out, size, count);
+                    size += count;
+                    codec.releaseOutputBuffer(index, false);
+
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) break;
+                }
+            }
+
+            if (size == 0) {
+                throw new IOException("Alarm sound decoded to no samples");
+            }
+            pcm = Arrays.copyOf(out, size);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    private AudioTrack createTrack() {
+        AudioFormat format = new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(sampleRate)
+                .setChannelMask(channelCount == 1
+                        ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO)
+                .build();
+        int minBuffer = AudioTrack.getMinBufferSize(sampleRate, format.getChannelMask(),
+                AudioFormat.ENCODING_PCM_16BIT);
+
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ALARM)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(format)
+                .setBufferSizeInBytes(minBuffer * 2)
+                .setTransferMode(AudioTrack.MODE_STREAM);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        return builder.build();
+    }
+
+    private void run(long requestedAt, Listener listener) {
+        load();
+        // Nothing to loop over without samples
+        if (track == null || pcm == null || pcm.length == 0 || !playing) {
+            playing = false;
+            return;
+        }
+
+        float startVolume = prefs.getFloat(KEY_START_VOLUME, DEFAULT_START_VOLUME);
+        long rampMs = prefs.getLong(KEY_RAMP_MS, DEFAULT_RAMP_MS);
+        int chunk = sampleRate * CHUNK_MS / 1000 * channelCount;
+        int offset = 0;
+        boolean audible = false;
+
+        track.setVolume(startVolume);
+        track.play();
+        long startedAt = SystemClock.uptimeMillis();
+
+        while (playing) {
+            int written = track.write(pcm, offset, Math.min(chunk, pcm.length - offset));
+            if (written < 0) {
+                Log.e(TAG, "AudioTrack write failed: " + written);
+                break;
+            }
+            offset = (offset + written) % pcm.length;
+
+            long elapsed = SystemClock.uptimeMillis() - startedAt;
+            if (elapsed < rampMs) {
+                track.setVolume(startVolume + (1f - startVolume) * elapsed / rampMs);
+            } else {
+                track.setVolume(1f);
+            }
+
+            if (!audible && track.getPlaybackHeadPosition() > 0) {
+                audible = true;
+                long switchOverMs = SystemClock.uptimeMillis() - requestedAt;
+                lastSwitchOverMs = switchOverMs;
+                // The listener journals it as EVENT_AUDIO_FALLBACK
+                if (listener != null) {
+                    mainHandler.post(() -> listener.onAudible(switchOverMs));
+                }
+            }
+        }
+
+        // Keep the track open for the next alarm
+        track.pause();
+        track.flush();
+        playing = false;
+    }
+}
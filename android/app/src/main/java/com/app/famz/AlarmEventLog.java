@@ -0,0 +1,29 @@
+package com.app.famz;
+
+import android.content.Context;
+
+import java.io.File;
+import java.time.Clock;
+
+/**
+ * The app-wide {@link AlarmJournal}. The fire path records its hops here instead of building
+ * log strings; {@link MainActivity} hands the journal to Flutter for support tickets.
+ */
+public class AlarmEventLog {
+    private static final String JOURNAL_FILE = "alarm_journal.bin";
+    // About 96 KB; weeks of alarms at a few records per fire
+    private static final int CAPACITY = 4096;
+
+    private static AlarmJournal instance;
+
+    private AlarmEventLog() {
+    }
+
+    public static synchronized AlarmJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmJournal(new File(context.getFilesDir(), JOURNAL_FILE),
+                    CAPACITY, Clock.systemUTC());
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,105 @@
+package com.app.famz;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Native alarm lifecycle events for Flutter's {@code com.app.famz/alarm_events} channel.
+ *
+ * Each event is a map with {@code type}, {@code alarmId} and {@code time} plus type-specific
+ * fields. While no Dart listener is attached (no engine, or the engine was destroyed) events
+ * are buffered in memory, up to {@link #MAX_BUFFERED}, and replayed in order when Dart
+ * subscribes. Events from before a process death are not kept; Flutter's full sync on start
+ * covers those.
+ */
+public class AlarmEventStream implements EventChannel.StreamHandler,
+        FlutterEngine.EngineLifecycleListener {
+    public static final String CHANNEL = "com.app.famz/alarm_events";
+
+    public static final String TYPE_FIRED = "fired";
+    public static final String TYPE_RESCHEDULED = "rescheduled";
+    public static final String TYPE_SNOOZED = "snoozed";
+    public static final String TYPE_STOPPED = "stopped";
+    public static final String TYPE_AUDIO_FALLBACK = "audioFallback";
+
+    private static final int MAX_BUFFERED = 128;
+
+    private static AlarmEventStream instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Touched on the main thread only
+    private final ArrayDeque<Map<String, Object>> buffer = new ArrayDeque<>();
+    private EventChannel.EventSink sink;
+
+    public static synchronized AlarmEventStream getInstance() {
+        if (instance == null) {
+            instance = new AlarmEventStream();
+        }
+        return instance;
+    }
+
+    /**
+     * Sends an event, or buffers it until Dart listens. Safe to call from any thread;
+     * {@code extras} may be null.
+     */
+    public void emit(String type, String alarmId, Map<String, Object> extras) {
+        Map<String, Object> event = new HashMap<>();
+        if (extras != null) {
+            event.putAll(extras);
+        }
+        event.put("type", type);
+        event.put("alarmId", alarmId);
+        event.put("time", System.currentTimeMillis());
+
+        handler.post(() -> {
+            if (sink != null) {
+                sink.success(event);
+                return;
+            }
+            if (buffer.size() == MAX_BUFFERED) {
+                buffer.removeFirst();
+            }
+            buffer.addLast(event);
+        });
+    }
+
+    /**
+     * Convenience for events with a single extra field.
+     */
+    public void emit(String type, String alarmId, String key, Object value) {
+        Map<String, Object> extras = new HashMap<>();
+        extras.put(key, value);
+        emit(type, alarmId, extras);
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        sink = events;
+        while (!buffer.isEmpty()) {
+            sink.success(buffer.removeFirst());
+        }
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        sink = null;
+    }
+
+    @Override
+    public void onPreEngineRestart() {
+        // Hot restart drops the Dart subscription; it listens again afterwards
+        sink = null;
+    }
+
+    @Override
+    public void onEngineWillDestroy() {
+        sink = null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.app.famz;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures how late each hop of the fire path runs relative to the alarm's scheduled time.
+ *
+ * The receiver converts the wall-clock trigger time into the {@link SystemClock#elapsedRealtime}
+ * timeline once and passes it along as {@link #EXTRA_TRIGGER_ELAPSED}; every later hop measures
+ * against that monotonic value, so wall-clock changes mid-fire do not skew the numbers.
+ *
+ * Receiver delays are also kept per {@link AlarmBackend} that delivered the wakeup, to compare
+ * on-time delivery of the backends under Doze.
+ */
+public class AlarmLatencyTracker {
+    private static final String TAG = "AlarmLatencyTracker";
+    private static final String STATS_FILE = "alarm_latency.bin";
+    public static final String EXTRA_TRIGGER_ELAPSED = "triggerElapsed";
+    public static final String EXTRA_STATS_KEY = "statsKey";
+
+    private static AlarmLatencyTracker instance;
+
+    private final File file;
+    private final LatencyStats stats = new LatencyStats();
+    private final LatencyStats backendStats = new LatencyStats();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private AlarmLatencyTracker(Context context) {
+        this.file = new File(context.getFilesDir(), STATS_FILE);
+        load();
+    }
+
+    public static synchronized AlarmLatencyTracker getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmLatencyTracker(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Maps a wall-clock trigger time onto the elapsed-realtime timeline.
+     */
+    public static long toElapsed(long triggerAtMillis) {
+        return SystemClock.elapsedRealtime() - (System.currentTimeMillis() - triggerAtMillis);
+    }
+
+    /**
+     * Stats are grouped by the user-visible alarm, so all weekdays of a recurring alarm share
+     * one entry.
+     */
+    public static String keyFor(String alarmId, String recurringId) {
+        return recurringId != null ? recurringId : alarmId;
+    }
+
+    public void record(String statsKey, int hop, long triggerElapsed) {
+        if (triggerElapsed <= 0) return;
+        recordDelay(statsKey, hop, SystemClock.elapsedRealtime() - triggerElapsed);
+    }
+
+    /**
+     * Records a delay measured earlier, e.g. by the receiver before it handed its
+     * bookkeeping to a background thread.
+     */
+    public void recordDelay(String statsKey, int hop, long delay) {
+        if (statsKey == null) return;
+
+        synchronized (this) {
+            stats.record(statsKey, hop, delay);
+        }
+        writer.execute(this::save);
+    }
+
+    public void recordBackendDelay(AlarmBackend backend, long delay) {
+        synchronized (this) {
+            backendStats.record(backend.channelName, LatencyStats.HOP_RECEIVER, delay);
+        }
+        writer.execute(this::save);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        return stats.snapshot();
+    }
+
+    /**
+     * Returns {backend: {receiver: {count, p50, p95, p99, max}}}.
+     */
+    public synchronized Map<String, Object> getBackendStats() {
+        return backendStats.snapshot();
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            stats.read(in);
+            backendStats.read(in);
+        } catch (EOFException e) {
+            // Written before per-backend stats were kept
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading latency stats", e);
+        }
+    }
+
+    private void save() {
+        // Serialize under the lock, write the file outside it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            synchronized (this) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                stats.write(out);
+                backendStats.write(out);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error encoding latency stats", e);
+            return;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            bytes.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing latency stats", e);
+            tmp.delete();
+            return;
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+}
@@ -1,115 +1,182 @@
 package com.app.famz;
 
 import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AlarmReceiver extends BroadcastReceiver {
     public static final String TAG = "AlarmReceiver";
     public static final String ACTION_ALARM = "com.app.famz.ALARM";
 
+    // Loading the registry, rescheduling and bookkeeping run here, off the main thread; only
+    // starting the alarm service is posted back to it
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    // Lets the boot rush settle before spending memory on a Flutter engine
+    private static final long BOOT_WARM_DELAY_MS = 60 * 1000L;
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.d(TAG, "Alarm received: " + intent.getAction());
-
         if (intent.getAction() != null) {
             if (intent.getAction().equals(ACTION_ALARM)) {
-                String videoPath = intent.getStringExtra("videoPath");
-                String alarmId = intent.getStringExtra("alarmId");
-                boolean isRecurring = intent.getBooleanExtra("isRecurring", false);
-
-                // Start service to handle the alarm
-                Intent serviceIntent = new Intent(context, AlarmService.class);
-                serviceIntent.putExtra("videoPath", videoPath);
-                serviceIntent.putExtra("alarmId", alarmId);
-
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    context.startForegroundService(serviceIntent);
-                } else {
-                    context.startService(serviceIntent);
-                }
-
-                // If this is a recurring alarm, reschedule for next week
-                if (isRecurring) {
-                    int weekday = intent.getIntExtra("weekday", -1);
-                    int hour = intent.getIntExtra("hour", -1);
-                    int minute = intent.getIntExtra("minute", -1);
-                    String recurringId = intent.getStringExtra("recurringId");
+                long receivedAt = System.currentTimeMillis();
+                AlarmBackend firedSlot = AlarmScheduler.firedSlot(intent);
+
+                // The first use of the scheduler in a cold process replays the registry log
+                // from disk, so even polling happens off the main thread
+                runAsync(() -> {
+                    // A slot fired: ring everything due within the coalescing window
+                    AlarmScheduler scheduler = AlarmScheduler.getInstance(context);
+                    List<AlarmEntry> due = scheduler.pollDueAlarms();
+                    List<AlarmEntry> ringing = due;
+
+                    String legacyId = intent.getStringExtra("alarmId");
+                    if (due.isEmpty() && legacyId != null
+                            && scheduler.getRegistry().get(legacyId) == null) {
+                        // Per-alarm intent armed before the single-slot scheduler existed;
+                        // alarms stored since then ring from their slot
+                        ringing = Collections.singletonList(new AlarmEntry(
+                                legacyId,
+                                intent.getLongExtra("timestamp", receivedAt),
+                                intent.getStringExtra("videoPath"),
+                                null, 0, -1, -1,
+                                intent.getStringExtra("recurringId")));
+                    }
 
-                    if (weekday >= 0 && hour >= 0 && minute >= 0) {
-                        scheduleNextWeekAlarm(context, alarmId, weekday, hour, minute, videoPath, recurringId);
+                    // Only starting the alarm services goes back to the main thread
+                    final List<AlarmEntry> fired = ringing;
+                    MAIN.post(() -> ring(context, fired));
+
+                    // Persist the fire, re-arm the slots and record latency, also against the
+                    // backend that actually delivered this wakeup
+                    AlarmBackend delivered = scheduler.armedBackend(firedSlot);
+                    scheduler.commitFired(firedSlot, due);
+                    AlarmEventStream events = AlarmEventStream.getInstance();
+                    for (AlarmEntry entry : due) {
+                        AlarmEntry next = entry.isRecurring()
+                                ? scheduler.getRegistry().get(entry.alarmId) : null;
+                        if (next != null) {
+                            events.emit(AlarmEventStream.TYPE_RESCHEDULED, next.alarmId,
+                                    "triggerAt", next.triggerAtMillis);
+                        }
                     }
-                }
+                    PowerLedger power = PowerStats.getInstance(context);
+                    power.add(PowerLedger.WAKEUPS, 1);
+                    power.add(PowerLedger.ALARMS, fired.size());
+
+                    AlarmLatencyTracker tracker = AlarmLatencyTracker.getInstance(context);
+                    AlarmJournal journal = AlarmEventLog.getInstance(context);
+                    for (AlarmEntry entry : fired) {
+                        long delay = receivedAt - entry.triggerAtMillis;
+                        journal.record(AlarmJournal.EVENT_RECEIVED, entry.code,
+                                AlarmJournal.RESULT_OK, delay);
+                        tracker.recordDelay(AlarmLatencyTracker.keyFor(entry.alarmId, entry.recurringId),
+                                LatencyStats.HOP_RECEIVER, delay);
+                        tracker.recordBackendDelay(delivered, delay);
+                    }
+                });
             } else if (intent.getAction().equals(Intent.ACTION_BOOT_COMPLETED) ||
-                    intent.getAction().equals(Intent.ACTION_MY_PACKAGE_REPLACED)) {
-                // Reschedule alarms after boot or app update
-                Log.d(TAG, "Boot completed or app updated, should reschedule alarms");
+                    intent.getAction().equals(Intent.ACTION_MY_PACKAGE_REPLACED) ||
+                    intent.getAction().equals(
+                            AlarmManager.ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED)) {
+                // Reschedule alarms after boot or app update from the native registry; a newly
+                // granted exact alarm permission lifts degraded slots back to their backend
+                runAsync(() -> {
+                    AlarmScheduler scheduler = AlarmScheduler.getInstance(context);
+                    int count = scheduler.rescheduleAll();
+                    AlarmEventLog.getInstance(context).record(AlarmJournal.EVENT_RESCHEDULED,
+                            RequestCodeIndex.NO_CODE, AlarmJournal.RESULT_OK, count);
+                    // The zone may have changed while the device was off
+                    emitRescheduled(scheduler.onWallClockChanged());
+                });
+
+                if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+                    EngineWarmupJobService.schedule(context);
+                    FlutterEngineWarmer.getInstance(context).warmUp("boot", BOOT_WARM_DELAY_MS);
+                }
+            } else if (intent.getAction().equals(Intent.ACTION_TIMEZONE_CHANGED) ||
+                    intent.getAction().equals(Intent.ACTION_TIME_CHANGED)) {
+                // Alarms set for a local time follow the new clock; absolute ones stay put
+                runAsync(() -> {
+                    List<AlarmEntry> moved = AlarmScheduler.getInstance(context).onWallClockChanged();
+                    AlarmEventLog.getInstance(context).record(AlarmJournal.EVENT_RESCHEDULED,
+                            RequestCodeIndex.NO_CODE, AlarmJournal.RESULT_OK, moved.size());
+                    emitRescheduled(moved);
+                });
             }
         }
     }
 
-    private void scheduleNextWeekAlarm(Context context, String alarmId, int weekday,
-                                       int hour, int minute, String videoPath, String recurringId) {
-        try {
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-
-            // Create intent for next week
-            Intent intent = new Intent(context, AlarmReceiver.class);
-            intent.setAction(ACTION_ALARM);
-            intent.putExtra("alarmId", alarmId);
-            intent.putExtra("videoPath", videoPath);
-            intent.putExtra("isRecurring", true);
-            intent.putExtra("weekday", weekday);
-            intent.putExtra("hour", hour);
-            intent.putExtra("minute", minute);
-            intent.putExtra("recurringId", recurringId);
-
-            // Create pending intent
-            int requestCode = alarmId.hashCode();
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            // Calculate time for next week
-            Calendar calendar = Calendar.getInstance();
-
-            // Add 7 days (one week)
-            calendar.add(Calendar.DAY_OF_YEAR, 7);
-
-            // Set the hour and minute
-            calendar.set(Calendar.HOUR_OF_DAY, hour);
-            calendar.set(Calendar.MINUTE, minute);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-
-            // Schedule the alarm
-            long nextAlarmTime = calendar.getTimeInMillis();
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(
-                        AlarmManager.RTC_WAKEUP,
-                        nextAlarmTime,
-                        pendingIntent);
-            } else {
-                alarmManager.setExact(
-                        AlarmManager.RTC_WAKEUP,
-                        nextAlarmTime,
-                        pendingIntent);
-            }
+    private static void ring(Context context, List<AlarmEntry> fired) {
+        AlarmEventStream events = AlarmEventStream.getInstance();
+        for (AlarmEntry entry : fired) {
+            startAlarmService(context, entry);
 
-            Log.d(TAG, "Rescheduled recurring alarm for next week: " + alarmId +
-                    " at " + calendar.getTime().toString());
+            Map<String, Object> extras = new HashMap<>();
+            extras.put("triggerAt", entry.triggerAtMillis);
+            extras.put("recurringId", entry.recurringId);
+            events.emit(AlarmEventStream.TYPE_FIRED, entry.alarmId, extras);
+        }
+    }
+
+    /**
+     * Tells Flutter about alarms whose fire time changed natively.
+     */
+    private static void emitRescheduled(List<AlarmEntry> moved) {
+        for (AlarmEntry entry : moved) {
+            AlarmEventStream.getInstance().emit(AlarmEventStream.TYPE_RESCHEDULED,
+                    entry.alarmId, "triggerAt", entry.triggerAtMillis);
+        }
+    }
+
+    /**
+     * Runs {@code work} on the receiver executor while keeping the broadcast alive until it
+     * finishes, well within the receiver deadline.
+     */
+    private void runAsync(Runnable work) {
+        final PendingResult pendingResult = goAsync();
+        EXECUTOR.execute(() -> {
+            try {
+                work.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Error handling alarm broadcast", e);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error scheduling next week alarm", e);
+    private static void startAlarmService(Context context, AlarmEntry entry) {
+        // Start service to handle the alarm
+        Intent serviceIntent = new Intent(context, AlarmService.class);
+        serviceIntent.putExtra("videoPath", entry.videoPath);
+        serviceIntent.putExtra("alarmId", entry.alarmId);
+        serviceIntent.putExtra("code", entry.code);
+        serviceIntent.putExtra("timestamp", entry.triggerAtMillis);
+        serviceIntent.putExtra("recurringId", entry.recurringId);
+        serviceIntent.putExtra("backend", entry.backend.channelName);
+        serviceIntent.putExtra("snoozeCount", entry.snoozeCount);
+        serviceIntent.putExtra(AlarmLatencyTracker.EXTRA_STATS_KEY,
+                AlarmLatencyTracker.keyFor(entry.alarmId, entry.recurringId));
+        serviceIntent.putExtra(AlarmLatencyTracker.EXTRA_TRIGGER_ELAPSED,
+                AlarmLatencyTracker.toElapsed(entry.triggerAtMillis));
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(serviceIntent);
+        } else {
+            context.startService(serviceIntent);
         }
     }
-}
\ No newline at end of file
+}
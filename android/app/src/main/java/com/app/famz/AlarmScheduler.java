@@ -0,0 +1,349 @@
+package com.app.famz;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps every pending alarm in an {@link AlarmEngine} and arms one AlarmManager slot per
+ * {@link AlarmBackend} for the earliest alarm using it. When a slot fires the receiver takes
+ * all alarms due within the coalescing window and the slots are re-armed, so AlarmManager
+ * holds at most one entry per backend for the app.
+ *
+ * Without the exact alarm permission, alarm-clock and exact slots degrade to windowed ones.
+ * The backend each slot was actually armed with is kept so fires can be attributed to it.
+ */
+public class AlarmScheduler {
+    private static final String TAG = "AlarmScheduler";
+    private static final String REGISTRY_FILE = "alarm_registry.bin";
+    private static final String PREFS_NAME = "famz_alarm_scheduler";
+    private static final String KEY_COALESCE_WINDOW = "coalesce_window_ms";
+    private static final long DEFAULT_COALESCE_WINDOW_MS = 30 * 1000L;
+    private static final String KEY_ARMED_BACKEND = "armed_backend_";
+    private static final String KEY_DEVICE_ZONE = "device_zone";
+    private static final String KEY_SNOOZE_DURATION = "snooze_duration_ms";
+    private static final String KEY_SNOOZE_MAX_COUNT = "snooze_max_count";
+    private static final String SLOT_URI = "famz://alarm-slot/";
+    private static final long WINDOW_MS = 10 * 60 * 1000L;
+
+    private static AlarmScheduler instance;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final SharedPreferences prefs;
+    private final AlarmEngine engine;
+    private final SnoozeController snoozer;
+
+    private AlarmScheduler(Context context) {
+        this.context = context;
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.engine = new AlarmEngine(
+                new AlarmRegistry(new File(context.getFilesDir(), REGISTRY_FILE)),
+                new ManagerSlot(),
+                DeviceClock.INSTANCE,
+                prefs.getLong(KEY_COALESCE_WINDOW, DEFAULT_COALESCE_WINDOW_MS));
+        this.snoozer = new SnoozeController(engine, DeviceClock.INSTANCE,
+                prefs.getLong(KEY_SNOOZE_DURATION, SnoozeController.DEFAULT_DURATION_MS),
+                prefs.getInt(KEY_SNOOZE_MAX_COUNT, SnoozeController.DEFAULT_MAX_COUNT));
+        if (!prefs.contains(KEY_DEVICE_ZONE)) {
+            prefs.edit().putString(KEY_DEVICE_ZONE, ZoneId.systemDefault().getId()).apply();
+        }
+    }
+
+    public static synchronized AlarmScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public AlarmRegistry getRegistry() {
+        return engine.getRegistry();
+    }
+
+    public long getCoalesceWindowMillis() {
+        return engine.getCoalesceWindowMillis();
+    }
+
+    public void setCoalesceWindowMillis(long windowMillis) {
+        engine.setCoalesceWindowMillis(windowMillis);
+        prefs.edit().putLong(KEY_COALESCE_WINDOW, engine.getCoalesceWindowMillis()).apply();
+    }
+
+    public SnoozeController getSnoozer() {
+        return snoozer;
+    }
+
+    public void setSnoozeSettings(long durationMillis, int maxCount) {
+        snoozer.setSettings(durationMillis, maxCount);
+        prefs.edit()
+                .putLong(KEY_SNOOZE_DURATION, snoozer.getDurationMillis())
+                .putInt(KEY_SNOOZE_MAX_COUNT, snoozer.getMaxCount())
+                .apply();
+    }
+
+    public void schedule(AlarmEntry entry) {
+        scheduleAll(Collections.singletonList(entry));
+    }
+
+    public void scheduleAll(Collection<AlarmEntry> entries) {
+        List<AlarmEntry> stored = engine.scheduleAll(entries);
+        List<String> alarmIds = new ArrayList<>(stored.size());
+        for (AlarmEntry entry : stored) {
+            alarmIds.add(entry.alarmId);
+        }
+        // The slot rings these from now on
+        cancelLegacy(alarmIds);
+        prefetchVideos(stored);
+    }
+
+    public void cancel(String alarmId) {
+        cancelAll(Collections.singletonList(alarmId));
+    }
+
+    public void cancelAll(Collection<String> alarmIds) {
+        engine.cancelAll(alarmIds);
+        cancelLegacy(alarmIds);
+    }
+
+    /**
+     * Cancels every alarm issued under {@code recurringId}, plus an alarm whose own id is
+     * {@code recurringId}. Returns the number of alarms canceled.
+     */
+    public int cancelGroup(String recurringId) {
+        List<String> alarmIds = engine.getRegistry().group(recurringId);
+        alarmIds.add(recurringId);
+        int count = engine.cancelGroup(recurringId);
+        cancelLegacy(alarmIds);
+        return count;
+    }
+
+    /**
+     * Called when a slot fires; see {@link AlarmEngine#pollDueAlarms}.
+     */
+    public List<AlarmEntry> pollDueAlarms() {
+        return engine.pollDueAlarms();
+    }
+
+    public void commitFired(AlarmBackend firedSlot, List<AlarmEntry> fired) {
+        engine.commitFired(firedSlot, fired);
+    }
+
+    /**
+     * The backend whose slot sent {@code intent}. Slots armed before backends existed carry
+     * no data and were exact.
+     */
+    public static AlarmBackend firedSlot(Intent intent) {
+        Uri data = intent.getData();
+        if (data == null || data.getLastPathSegment() == null) {
+            return AlarmBackend.EXACT;
+        }
+        try {
+            return AlarmBackend.fromChannelName(data.getLastPathSegment());
+        } catch (IllegalArgumentException e) {
+            return AlarmBackend.EXACT;
+        }
+    }
+
+    /**
+     * The backend {@code slot} was last armed with, after any degradation.
+     */
+    public AlarmBackend armedBackend(AlarmBackend slot) {
+        String name = prefs.getString(KEY_ARMED_BACKEND + slot.name(), null);
+        try {
+            return name != null ? AlarmBackend.valueOf(name) : slot;
+        } catch (IllegalArgumentException e) {
+            return slot;
+        }
+    }
+
+    /**
+     * Re-arms the slot from the stored alarms after BOOT_COMPLETED wiped AlarmManager and
+     * prefetches their videos. Returns the number of pending alarms.
+     */
+    public int rescheduleAll() {
+        int pending = engine.rescheduleAll();
+        List<String> alarmIds = new ArrayList<>();
+        for (AlarmEntry entry : engine.getRegistry().entries()) {
+            alarmIds.add(entry.alarmId);
+        }
+        // After an update, stored alarms may still hold the intents an older build armed
+        cancelLegacy(alarmIds);
+        prefetchVideos(engine.getRegistry().entries());
+        return pending;
+    }
+
+    /**
+     * Called when the device's clock was set or its time zone changed; see
+     * {@link AlarmEngine#recomputeWallClock}. Returns the alarms that moved.
+     */
+    public List<AlarmEntry> onWallClockChanged() {
+        List<AlarmEntry> moved = engine.recomputeWallClock(deviceZone());
+        prefs.edit().putString(KEY_DEVICE_ZONE, ZoneId.systemDefault().getId()).apply();
+
+        if (!moved.isEmpty()) {
+            // Prefetch tiers follow the new fire times
+            VideoPrefetchJobService.schedule(context);
+        }
+        return moved;
+    }
+
+    /**
+     * The zone the stored fire times were computed in.
+     */
+    private ZoneId deviceZone() {
+        String zone = prefs.getString(KEY_DEVICE_ZONE, null);
+        try {
+            return zone != null ? ZoneId.of(zone) : null;
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private void prefetchVideos(Collection<AlarmEntry> entries) {
+        Set<String> videoPaths = new HashSet<>();
+        for (AlarmEntry entry : entries) {
+            videoPaths.add(entry.videoPath);
+        }
+
+        // Videos of alarms that are still scheduled must survive eviction
+        Set<String> pinned = new HashSet<>();
+        for (AlarmEntry entry : engine.getRegistry().entries()) {
+            pinned.add(entry.videoPath);
+        }
+
+        AlarmVideoCache.getInstance(context).prefetch(videoPaths, pinned);
+
+        // Remote videos download under constraints tied to their alarms' fire times
+        VideoPrefetchJobService.schedule(context);
+    }
+
+    /**
+     * Cancels the per-alarm intents that builds before the slot scheduler armed under
+     * {@code alarmId.hashCode()}. AlarmManager keeps them across app updates, and the
+     * receiver still rings them.
+     */
+    private void cancelLegacy(Collection<String> alarmIds) {
+        for (String alarmId : alarmIds) {
+            int requestCode = alarmId.hashCode();
+            // That would be the exact slot itself
+            if (requestCode == RequestCodeIndex.SLOT_CODE) continue;
+
+            Intent intent = new Intent(context, AlarmReceiver.class);
+            intent.setAction(AlarmReceiver.ACTION_ALARM);
+            PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                    context,
+                    requestCode,
+                    intent,
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+            if (pendingIntent != null) {
+                alarmManager.cancel(pendingIntent);
+                pendingIntent.cancel();
+                Log.d(TAG, "Canceled legacy intent of alarm " + alarmId);
+            }
+        }
+    }
+
+    private boolean canScheduleExact() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+    }
+
+    /**
+     * Arms one AlarmManager entry per backend at the engine's earliest alarm for it.
+     */
+    private class ManagerSlot implements AlarmEngine.Slot {
+        @Override
+        public void arm(AlarmBackend backend, AlarmEntry head, int pending) {
+            PendingIntent pendingIntent = slotIntent(backend);
+            AlarmBackend armed = backend != AlarmBackend.WINDOWED && !canScheduleExact()
+                    ? AlarmBackend.WINDOWED
+                    : backend;
+
+            switch (armed) {
+                case ALARM_CLOCK:
+                    alarmManager.setAlarmClock(
+                            new AlarmManager.AlarmClockInfo(head.triggerAtMillis, showIntent()),
+                            pendingIntent);
+                    break;
+                case EXACT:
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                        alarmManager.setExactAndAllowWhileIdle(
+                                AlarmManager.RTC_WAKEUP,
+                                head.triggerAtMillis,
+                                pendingIntent);
+                    } else {
+                        alarmManager.setExact(
+                                AlarmManager.RTC_WAKEUP,
+                                head.triggerAtMillis,
+                                pendingIntent);
+                    }
+                    break;
+                default:
+                    alarmManager.setWindow(
+                            AlarmManager.RTC_WAKEUP,
+                            head.triggerAtMillis,
+                            WINDOW_MS,
+                            pendingIntent);
+                    break;
+            }
+            prefs.edit().putString(KEY_ARMED_BACKEND + backend.name(), armed.name()).apply();
+
+            AlarmEventLog.getInstance(context).record(AlarmJournal.EVENT_ARMED, head.code,
+                    armed == backend ? AlarmJournal.RESULT_OK : AlarmJournal.RESULT_DEGRADED,
+                    head.triggerAtMillis);
+        }
+
+        @Override
+        public void cancel(AlarmBackend backend) {
+            alarmManager.cancel(slotIntent(backend));
+
+            AlarmEventLog.getInstance(context).record(AlarmJournal.EVENT_DISARMED,
+                    RequestCodeIndex.NO_CODE, AlarmJournal.RESULT_OK, backend.ordinal());
+        }
+    }
+
+    /**
+     * Opened when the user taps the alarm clock shown in the status bar.
+     */
+    private PendingIntent showIntent() {
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+
+        return PendingIntent.getActivity(
+                context,
+                RequestCodeIndex.SLOT_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private PendingIntent slotIntent(AlarmBackend backend) {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.setAction(AlarmReceiver.ACTION_ALARM);
+        // The exact slot keeps the identity of the original single slot
+        if (backend != AlarmBackend.EXACT) {
+            intent.setData(Uri.parse(SLOT_URI + backend.channelName));
+        }
+
+        return PendingIntent.getBroadcast(
+                context,
+                RequestCodeIndex.SLOT_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
@@ -9,7 +9,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.IBinder;
-import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
@@ -19,37 +19,70 @@ public class AlarmService extends Service {
     private static final String TAG = "AlarmService";
     private static final String CHANNEL_ID = "alarm_channel";
     private static final int NOTIFICATION_ID = 1;
+    private static final String NOTIFICATION_GROUP = "alarm_session";
+    // Leaves the CPU to video startup before the engine warm-up begins
+    private static final long ENGINE_WARM_DELAY_MS = 5000;
 
-    private PowerManager.WakeLock wakeLock;
+    private long foregroundSince;
 
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "AlarmService created");
 
         // Create notification channel for foreground service
         createNotificationChannel();
-
-        // Acquire wake lock to keep CPU running
-        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
-        wakeLock = powerManager.newWakeLock(
-                PowerManager.PARTIAL_WAKE_LOCK,
-                "VideoAlarmApp::AlarmWakeLock");
-        wakeLock.acquire(10*60*1000L /*10 minutes*/);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        Log.d(TAG, "AlarmService started");
+        AlarmSession session = AlarmSession.getInstance();
+
+        if (intent == null) {
+            // Restarted after the process died; the alarm screen went with it
+            if (!session.isRinging()) {
+                stopSelf(startId);
+            }
+            return START_NOT_STICKY;
+        }
+
+        int code = intent.getIntExtra("code", RequestCodeIndex.NO_CODE);
+        AlarmSession.Item item = AlarmSession.Item.fromIntent(intent, notificationIdFor(code));
+        boolean newSession = !session.isRinging();
+
+        if (!session.add(item)) {
+            // Already ringing; every start still has to confirm the foreground state
+            AlarmSession.Item first = session.items().get(0);
+            startForeground(first.notificationId, createNotification(first));
+            return START_STICKY;
+        }
+
+        // One notification per alarm; the session's first one keeps the service in front
+        if (newSession) {
+            startForeground(item.notificationId, createNotification(item));
+            foregroundSince = SystemClock.elapsedRealtime();
+        } else {
+            AlarmSession.Item first = session.items().get(0);
+            startForeground(first.notificationId, createNotification(first));
+            getSystemService(NotificationManager.class)
+                    .notify(item.notificationId, createNotification(item));
+        }
+
+        AlarmLatencyTracker.getInstance(this)
+                .record(item.statsKey, LatencyStats.HOP_SERVICE, item.triggerElapsed);
+        AlarmEventLog.getInstance(this).record(
+                newSession ? AlarmJournal.EVENT_SERVICE : AlarmJournal.EVENT_JOINED,
+                item.code, AlarmJournal.RESULT_OK, System.currentTimeMillis() - item.triggerAtMillis);
 
-        // Create foreground notification to keep service running
-        Notification notification = createNotification();
-        startForeground(NOTIFICATION_ID, notification);
+        if (!newSession) {
+            // The ringing screen picks the alarm up as the next video of its playlist
+            return START_STICKY;
+        }
+
+        // Keep the CPU running until the alarm screen is up (or the session ends)
+        AlarmWakeLock.getInstance(this).onRinging();
 
-        // Get video path from intent
-        String videoPath = intent.getStringExtra("videoPath");
-        String alarmId = intent.getStringExtra("alarmId");
-        Log.d(TAG, "Video path:"+ videoPath);
+        // Decode the fallback sound while the alarm screen starts
+        AlarmAudioEngine.getInstance(this).preload();
 
         // Check if overlay permission is granted
 //        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && !Settings.canDrawOverlays(this)) {
@@ -60,13 +93,15 @@ public class AlarmService extends Service {
 //            return START_STICKY;
 //        }
 
-        // Launch alarm activity with the video
+        // Launch alarm activity for the new session
         Intent alarmIntent = new Intent(this, AlarmActivity.class);
-        alarmIntent.putExtra("videoPath", videoPath);
-        alarmIntent.putExtra("alarmId", alarmId);
+        item.putExtras(alarmIntent);
         alarmIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(alarmIntent);
 
+        // Users often open the app right after the alarm; have an engine ready by then
+        FlutterEngineWarmer.getInstance(this).warmUp("alarm", ENGINE_WARM_DELAY_MS);
+
         return START_STICKY;
     }
 
@@ -80,8 +115,18 @@ public class AlarmService extends Service {
     public void onDestroy() {
         super.onDestroy();
 
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+        AlarmWakeLock.getInstance(this).onStopped();
+
+        if (foregroundSince != 0) {
+            PowerStats.getInstance(this).add(PowerLedger.SERVICE_MS,
+                    SystemClock.elapsedRealtime() - foregroundSince);
+            foregroundSince = 0;
+        }
+
+        // The session is over: drop the notifications of all its alarms
+        NotificationManager notificationManager = getSystemService(NotificationManager.class);
+        for (AlarmSession.Item item : AlarmSession.getInstance().end()) {
+            notificationManager.cancel(item.notificationId);
         }
 
         Log.d(TAG, "AlarmService destroyed");
@@ -100,7 +145,12 @@ public class AlarmService extends Service {
         }
     }
 
-    private Notification createNotification() {
+    private static int notificationIdFor(int code) {
+        // Request codes are dense and stable per alarm; legacy intents carry none
+        return code == RequestCodeIndex.NO_CODE ? NOTIFICATION_ID : NOTIFICATION_ID + 1 + code;
+    }
+
+    private Notification createNotification(AlarmSession.Item item) {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
                 this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE);
@@ -110,6 +160,9 @@ public class AlarmService extends Service {
                 .setContentText("Your alarm is going off")
                 .setSmallIcon(R.drawable.ic_notification)
                 .setContentIntent(pendingIntent)
+                .setWhen(item.triggerAtMillis)
+                .setShowWhen(true)
+                .setGroup(NOTIFICATION_GROUP)
                 .setPriority(NotificationCompat.PRIORITY_HIGH)
                 .build();
     }
@@ -0,0 +1,152 @@
+package com.app.famz;
+
+import android.content.Intent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The alarms ringing together on one alarm screen.
+ *
+ * {@link AlarmService} adds every alarm that fires; the first one opens the session and
+ * launches {@link AlarmActivity}, later ones join it as the next entries of the video
+ * playlist instead of relaunching the screen. The session ends when the screen is stopped or
+ * snoozed. Used on the main thread only.
+ */
+public class AlarmSession {
+    public static final class Item {
+        public final String alarmId;
+        public final int code;
+        public final String videoPath;
+        public final String statsKey;
+        public final long triggerAtMillis;
+        public final long triggerElapsed;
+        public final int notificationId;
+        public final String recurringId;
+        public final AlarmBackend backend;
+        public final int snoozeCount;
+
+        Item(String alarmId, int code, String videoPath, String statsKey,
+             long triggerAtMillis, long triggerElapsed, int notificationId,
+             String recurringId, AlarmBackend backend, int snoozeCount) {
+            this.alarmId = alarmId;
+            this.code = code;
+            this.videoPath = videoPath;
+            this.statsKey = statsKey;
+            this.triggerAtMillis = triggerAtMillis;
+            this.triggerElapsed = triggerElapsed;
+            this.notificationId = notificationId;
+            this.recurringId = recurringId;
+            this.backend = backend;
+            this.snoozeCount = snoozeCount;
+        }
+
+        /**
+         * Reads the alarm the receiver put into a service or activity intent.
+         */
+        public static Item fromIntent(Intent intent, int notificationId) {
+            return new Item(
+                    intent.getStringExtra("alarmId"),
+                    intent.getIntExtra("code", RequestCodeIndex.NO_CODE),
+                    intent.getStringExtra("videoPath"),
+                    intent.getStringExtra(AlarmLatencyTracker.EXTRA_STATS_KEY),
+                    intent.getLongExtra("timestamp", System.currentTimeMillis()),
+                    intent.getLongExtra(AlarmLatencyTracker.EXTRA_TRIGGER_ELAPSED, 0),
+                    notificationId,
+                    intent.getStringExtra("recurringId"),
+                    backend(intent.getStringExtra("backend")),
+                    intent.getIntExtra("snoozeCount", 0));
+        }
+
+        public void putExtras(Intent intent) {
+            intent.putExtra("alarmId", alarmId);
+            intent.putExtra("code", code);
+            intent.putExtra("videoPath", videoPath);
+            intent.putExtra(AlarmLatencyTracker.EXTRA_STATS_KEY, statsKey);
+            intent.putExtra("timestamp", triggerAtMillis);
+            intent.putExtra(AlarmLatencyTracker.EXTRA_TRIGGER_ELAPSED, triggerElapsed);
+            intent.putExtra("recurringId", recurringId);
+            intent.putExtra("backend", backend.channelName);
+            intent.putExtra("snoozeCount", snoozeCount);
+        }
+
+        /**
+         * The alarm as it was stored when it fired, e.g. to snooze it.
+         */
+        public AlarmEntry toEntry() {
+            return new AlarmEntry(code, alarmId, triggerAtMillis, videoPath, null, 0, -1, -1,
+                    recurringId, backend, snoozeCount);
+        }
+
+        private static AlarmBackend backend(String channelName) {
+            try {
+                return AlarmBackend.fromChannelName(channelName);
+            } catch (IllegalArgumentException e) {
+                return AlarmBackend.EXACT;
+            }
+        }
+    }
+
+    public interface Listener {
+        void onItemAdded(Item item);
+    }
+
+    private static AlarmSession instance;
+
+    private final List<Item> items = new ArrayList<>();
+    private Listener listener;
+
+    public static synchronized AlarmSession getInstance() {
+        if (instance == null) {
+            instance = new AlarmSession();
+        }
+        return instance;
+    }
+
+    public boolean isRinging() {
+        return !items.isEmpty();
+    }
+
+    public List<Item> items() {
+        return new ArrayList<>(items);
+    }
+
+    /**
+     * Adds a fired alarm. Returns false if it is already ringing in this session, e.g. a
+     * redelivered service start.
+     */
+    public boolean add(Item item) {
+        for (Item ringing : items) {
+            if (ringing.alarmId != null && ringing.alarmId.equals(item.alarmId)) {
+                return false;
+            }
+        }
+        items.add(item);
+        if (listener != null) {
+            listener.onItemAdded(item);
+        }
+        return true;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Clears the listener if it is still {@code owner}; a newer screen may have set its own.
+     */
+    public void clearListener(Listener owner) {
+        if (listener == owner) {
+            listener = null;
+        }
+    }
+
+    /**
+     * Ends the session and returns the alarms that were ringing.
+     */
+    public List<Item> end() {
+        List<Item> ended = new ArrayList<>(items);
+        items.clear();
+        return ended;
+    }
+}
@@ -0,0 +1,448 @@
+package com.app.famz;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * App-private copy of every alarm video, so AlarmActivity always plays a local file.
+ *
+ * Local media (file/content URIs) is copied on a background thread when an alarm is
+ * scheduled. Remote videos (http/https) are downloaded by {@link VideoPrefetchJobService}
+ * under network constraints that tighten as the alarm gets closer; downloads resume with
+ * range requests after a failure. Each file's SHA-256 is kept in a small index and checked
+ * whenever the file is re-requested; a mismatch drops the copy. When the cache grows past its
+ * byte budget, least recently used videos are evicted unless a still-scheduled alarm refers
+ * to them.
+ *
+ * Next to each video the cache keeps a poster: its first frame, scaled to the screen and
+ * stored as a JPEG, so the alarm screen can show the video's content before the decoder has
+ * produced a frame.
+ */
+public class AlarmVideoCache {
+    private static final String TAG = "AlarmVideoCache";
+    private static final String CACHE_DIR = "alarm_videos";
+    private static final String INDEX_FILE = "index";
+    private static final String PREFS_NAME = "famz_alarm_video_cache";
+    private static final String KEY_BUDGET = "budget_bytes";
+    private static final long DEFAULT_BUDGET_BYTES = 200L * 1024 * 1024;
+    private static final int INDEX_VERSION = 1;
+    private static final int CONNECT_TIMEOUT_MS = 15 * 1000;
+    private static final int READ_TIMEOUT_MS = 30 * 1000;
+    private static final String POSTER_SUFFIX = ".poster";
+    private static final int POSTER_QUALITY = 80;
+
+    private static AlarmVideoCache instance;
+
+    private final Context context;
+    private final File dir;
+    private final SharedPreferences prefs;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final RangeDownloader downloader =
+            new RangeDownloader(CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+    // Access-ordered, so iteration runs from least to most recently used
+    private final LinkedHashMap<String, CachedVideo> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class CachedVideo {
+        final String source;
+        final String fileName;
+        final long size;
+        final String sha256;
+
+        CachedVideo(String source, String fileName, long size, String sha256) {
+            this.source = source;
+            this.fileName = fileName;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+    }
+
+    private AlarmVideoCache(Context context) {
+        this.context = context;
+        this.dir = new File(context.getFilesDir(), CACHE_DIR);
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        loadIndex();
+    }
+
+    public static synchronized AlarmVideoCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmVideoCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public long getBudgetBytes() {
+        return prefs.getLong(KEY_BUDGET, DEFAULT_BUDGET_BYTES);
+    }
+
+    public void setBudgetBytes(long budgetBytes) {
+        prefs.edit().putLong(KEY_BUDGET, Math.max(0, budgetBytes)).apply();
+    }
+
+    /**
+     * Returns the local copy for {@code videoPath}, or {@code videoPath} itself if it has not
+     * been cached (yet). Cheap enough for the alarm fire path: only the file length is checked.
+     */
+    public synchronized String resolve(String videoPath) {
+        if (videoPath == null) return null;
+
+        CachedVideo cached = index.get(videoPath);
+        if (cached == null) return videoPath;
+
+        File file = new File(dir, cached.fileName);
+        if (file.length() != cached.size) {
+            Log.w(TAG, "Cached video is damaged, falling back to source: " + videoPath);
+            return videoPath;
+        }
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * Returns the poster frame for {@code videoPath}, or null if none has been extracted.
+     */
+    public synchronized String resolvePoster(String videoPath) {
+        if (videoPath == null) return null;
+
+        CachedVideo cached = index.get(videoPath);
+        if (cached == null) return null;
+
+        File poster = posterFile(cached);
+        return poster.exists() ? poster.getAbsolutePath() : null;
+    }
+
+    public static boolean isRemote(String videoPath) {
+        return videoPath != null
+                && (videoPath.startsWith("http://") || videoPath.startsWith("https://"));
+    }
+
+    /**
+     * True if a complete local copy of {@code videoPath} exists.
+     */
+    public synchronized boolean isCached(String videoPath) {
+        CachedVideo cached = index.get(videoPath);
+        return cached != null && new File(dir, cached.fileName).length() == cached.size;
+    }
+
+    /**
+     * Copies every local path in {@code videoPaths} in the background and extracts its
+     * poster, then trims the cache to its budget without evicting anything in
+     * {@code pinnedPaths}. Remote paths are skipped; see {@link #fetch}.
+     */
+    public void prefetch(Collection<String> videoPaths, Set<String> pinnedPaths) {
+        final List<String> paths = new ArrayList<>();
+        for (String path : videoPaths) {
+            if (path != null && !path.isEmpty() && !isRemote(path)) {
+                paths.add(path);
+            }
+        }
+        fetch(paths, pinnedPaths, null);
+    }
+
+    /**
+     * Caches {@code videoPaths} one after another in the background, then trims the cache and
+     * passes the paths that are still missing to {@code done}.
+     */
+    public void fetch(Collection<String> videoPaths, Set<String> pinnedPaths,
+                      Consumer<List<String>> done) {
+        final List<String> paths = new ArrayList<>(videoPaths);
+        executor.execute(() -> {
+            List<String> missing = new ArrayList<>();
+            for (String path : paths) {
+                try {
+                    ensurePoster(ensureCached(path));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error caching video " + path, e);
+                    missing.add(path);
+                }
+            }
+            trimToBudget(pinnedPaths);
+            if (done != null) {
+                done.accept(missing);
+            }
+        });
+    }
+
+    private CachedVideo ensureCached(String source) throws IOException {
+        CachedVideo cached;
+        synchronized (this) {
+            cached = index.get(source);
+        }
+
+        if (cached != null) {
+            File file = new File(dir, cached.fileName);
+            if (file.length() == cached.size && cached.sha256.equals(sha256Of(file))) {
+                return cached;
+            }
+            Log.w(TAG, "Checksum mismatch, re-fetching " + source);
+            remove(source);
+        }
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        String fileName = hex(digest().digest(source.getBytes(StandardCharsets.UTF_8)));
+        File part = new File(dir, fileName + ".part");
+        File target = new File(dir, fileName);
+
+        long size;
+        String sha256;
+        if (isRemote(source)) {
+            // The partial file stays on failure so the next attempt resumes it
+            size = downloader.download(source, part);
+            sha256 = sha256Of(part);
+        } else {
+            MessageDigest digest = digest();
+            size = 0;
+            try (InputStream in = open(source); OutputStream out = new FileOutputStream(part)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    digest.update(buffer, 0, read);
+                    size += read;
+                }
+            } catch (IOException e) {
+                part.delete();
+                throw e;
+            }
+            sha256 = hex(digest.digest());
+        }
+
+        if (!part.renameTo(target)) {
+            RangeDownloader.discard(part);
+            throw new IOException("Cannot move " + part + " to " + target);
+        }
+
+        cached = new CachedVideo(source, fileName, size, sha256);
+        synchronized (this) {
+            index.put(source, cached);
+            saveIndex();
+        }
+        Log.d(TAG, "Cached video " + source + " (" + size + " bytes)");
+        return cached;
+    }
+
+    /**
+     * Extracts the first frame of a cached video, scaled down to fit the screen.
+     */
+    private void ensurePoster(CachedVideo cached) {
+        File poster = posterFile(cached);
+        if (poster.exists()) return;
+
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        int maxWidth = Math.min(metrics.widthPixels, metrics.heightPixels);
+        int maxHeight = Math.max(metrics.widthPixels, metrics.heightPixels);
+
+        long started = SystemClock.uptimeMillis();
+        Bitmap frame = null;
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(new File(dir, cached.fileName).getAbsolutePath());
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                frame = retriever.getScaledFrameAtTime(
+                        0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC, maxWidth, maxHeight);
+            } else {
+                frame = scaleToFit(retriever.getFrameAtTime(
+                        0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC), maxWidth, maxHeight);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot extract poster for " + cached.source, e);
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                Log.w(TAG, "Error releasing retriever", e);
+            }
+        }
+        PowerStats.getInstance(context).add(PowerLedger.DECODE_MS,
+                SystemClock.uptimeMillis() - started);
+        if (frame == null) return;
+
+        File part = new File(dir, cached.fileName + POSTER_SUFFIX + ".part");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(part))) {
+            frame.compress(Bitmap.CompressFormat.JPEG, POSTER_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write poster for " + cached.source, e);
+            part.delete();
+            return;
+        } finally {
+            frame.recycle();
+        }
+
+        if (!part.renameTo(poster)) {
+            part.delete();
+            return;
+        }
+        Log.d(TAG, "Extracted poster for " + cached.source + " (" + poster.length() + " bytes)");
+    }
+
+    private static Bitmap scaleToFit(Bitmap frame, int maxWidth, int maxHeight) {
+        if (frame == null) return null;
+
+        float scale = Math.min(1f, Math.min(
+                (float) maxWidth / frame.getWidth(), (float) maxHeight / frame.getHeight()));
+        if (scale >= 1f) return frame;
+
+        Bitmap scaled = Bitmap.createScaledBitmap(frame,
+                Math.round(frame.getWidth() * scale), Math.round(frame.getHeight() * scale), true);
+        frame.recycle();
+        return scaled;
+    }
+
+    private File posterFile(CachedVideo cached) {
+        return new File(dir, cached.fileName + POSTER_SUFFIX);
+    }
+
+    private InputStream open(String source) throws IOException {
+        Uri uri = Uri.parse(source);
+        String scheme = uri.getScheme();
+
+        if ("content".equals(scheme) || "android.resource".equals(scheme)) {
+            InputStream in = context.getContentResolver().openInputStream(uri);
+            if (in == null) throw new IOException("Cannot open " + source);
+            return in;
+        }
+        return new FileInputStream("file".equals(scheme) ? uri.getPath() : source);
+    }
+
+    private synchronized void trimToBudget(Set<String> pinnedPaths) {
+        long total = 0;
+        for (CachedVideo cached : index.values()) {
+            total += cached.size;
+        }
+
+        long budget = getBudgetBytes();
+        if (total <= budget) return;
+
+        List<CachedVideo> victims = new ArrayList<>();
+        for (CachedVideo cached : index.values()) {
+            if (total <= budget) break;
+            if (pinnedPaths.contains(cached.source)) continue;
+            victims.add(cached);
+            total -= cached.size;
+        }
+
+        for (CachedVideo cached : victims) {
+            index.remove(cached.source);
+            new File(dir, cached.fileName).delete();
+            posterFile(cached).delete();
+            Log.d(TAG, "Evicted cached video " + cached.source);
+        }
+        saveIndex();
+    }
+
+    private synchronized void remove(String source) {
+        CachedVideo cached = index.remove(source);
+        if (cached != null) {
+            new File(dir, cached.fileName).delete();
+            posterFile(cached).delete();
+            saveIndex();
+        }
+    }
+
+    private void loadIndex() {
+        File file = new File(dir, INDEX_FILE);
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != INDEX_VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                CachedVideo cached = new CachedVideo(
+                        in.readUTF(), in.readUTF(), in.readLong(), in.readUTF());
+                if (new File(dir, cached.fileName).exists()) {
+                    index.put(cached.source, cached);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading video cache index", e);
+        }
+    }
+
+    private void saveIndex() {
+        File file = new File(dir, INDEX_FILE);
+        File tmp = new File(dir, INDEX_FILE + ".tmp");
+
+        // Written least recently used first, so the access order survives a restart
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(index.size());
+            for (Map.Entry<String, CachedVideo> e : index.entrySet()) {
+                CachedVideo cached = e.getValue();
+                out.writeUTF(cached.source);
+                out.writeUTF(cached.fileName);
+                out.writeLong(cached.size);
+                out.writeUTF(cached.sha256);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing video cache index", e);
+            tmp.delete();
+            return;
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private static String sha256Of(File file) throws IOException {
+        MessageDigest digest = digest();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,522 @@
+package com.app.famz;
+
+import android.content.Context;
+import android.graphics.Matrix;
+import android.graphics.SurfaceTexture;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Surface;
+import android.view.TextureView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Playback engine for the alarm screen.
+ *
+ * Decoding starts in {@link #prepare} while AlarmActivity inflates its layout, and the video
+ * is rendered onto two stacked TextureViews. Looping is gapless: while one player runs, the
+ * other sits prepared at frame zero behind it and is handed over through
+ * {@link MediaPlayer#setNextMediaPlayer}, so no seek ever happens on the visible player. The
+ * players are kept (reset, not released) between alarms so the next alarm reuses them.
+ *
+ * Alarms ringing together play as a playlist: the standby player is prepared with the next
+ * video instead of the same one, and alarms that join a ringing session are appended.
+ *
+ * {@link #prepare} and {@link #append} may be called from a background thread, so the
+ * engine's state is guarded by its monitor. They reset the players and open the sources
+ * without holding it, so main-thread calls such as {@link #attach} never wait for that. Player
+ * callbacks and {@link Listener} calls always arrive on the main thread, whichever thread
+ * created the players.
+ */
+public class AlarmVideoPlayer {
+    private static final String TAG = "AlarmVideoPlayer";
+    public static final long FIRST_FRAME_TARGET_MS = 500;
+
+    public interface Listener {
+        void onFirstFrame(long timeToFirstFrameMs);
+
+        void onError();
+    }
+
+    private static AlarmVideoPlayer instance;
+
+    private final MediaPlayer[] players = new MediaPlayer[2];
+    private final Surface[] surfaces = new Surface[2];
+    private final TextureView[] views = new TextureView[2];
+    private final boolean[] prepared = new boolean[2];
+    // Playlist index each player is prepared with
+    private final int[] itemOf = new int[2];
+    // Bumped whenever a player is reset, so callbacks posted for its previous source are dropped
+    private final int[] generation = new int[2];
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<String> playlist = new ArrayList<>();
+
+    private Context context;
+    private Listener listener;
+    private int current;
+    private boolean started;
+    private long prepareStartedAt;
+    private long playingSince;
+    private long lastTimeToFirstFrameMs = -1;
+
+    public static synchronized AlarmVideoPlayer getInstance() {
+        if (instance == null) {
+            instance = new AlarmVideoPlayer();
+        }
+        return instance;
+    }
+
+    public synchronized long getLastTimeToFirstFrameMs() {
+        return lastTimeToFirstFrameMs;
+    }
+
+    /**
+     * Starts preparing {@code videoPath} on both players. Call as early as possible; frames
+     * are rendered once {@link #attach} provides the surfaces.
+     */
+    public void prepare(Context context, String videoPath, Listener listener) {
+        prepare(context, Collections.singletonList(videoPath), listener);
+    }
+
+    /**
+     * Like {@link #prepare(Context, String, Listener)} for several videos played in turn.
+     */
+    public void prepare(Context context, List<String> videoPaths, Listener listener) {
+        int[] gens = new int[players.length];
+        synchronized (this) {
+            // Loading resets the players, so only the playback state is dropped here
+            end();
+
+            this.context = context.getApplicationContext();
+            this.listener = listener;
+            this.playlist.addAll(videoPaths);
+            this.prepareStartedAt = SystemClock.uptimeMillis();
+
+            for (int i = 0; i < players.length; i++) {
+                if (players[i] == null) {
+                    players[i] = new MediaPlayer();
+                }
+                gens[i] = claim(i, i % playlist.size());
+            }
+        }
+
+        for (int i = 0; i < players.length; i++) {
+            try {
+                load(i, gens[i]);
+            } catch (Exception e) {
+                synchronized (this) {
+                    // Stopped or taken over meanwhile; the error belongs to a dropped source
+                    if (generation[i] != gens[i]) continue;
+
+                    Log.e(TAG, "Error preparing player " + i, e);
+                    if (i == 0) {
+                        fail();
+                        return;
+                    }
+                    // Without a second player the loop falls back to setLooping
+                    prepared[1] = false;
+                    generation[1]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a video to the running playlist; it plays after the current one.
+     */
+    public void append(String videoPath) {
+        int standby;
+        int gen;
+        synchronized (this) {
+            if (playlist.isEmpty()) return;
+            playlist.add(videoPath);
+
+            // The standby player still holds the video that came next before
+            standby = 1 - current;
+            int next = (itemOf[current] + 1) % playlist.size();
+            if (itemOf[standby] == next || players[standby] == null) return;
+
+            if (started) {
+                players[current].setNextMediaPlayer(null);
+                players[current].setLooping(true);
+            }
+            gen = claim(standby, next);
+        }
+
+        try {
+            load(standby, gen);
+        } catch (Exception e) {
+            synchronized (this) {
+                if (generation[standby] == gen) {
+                    Log.e(TAG, "Error preparing player " + standby + " for appended video", e);
+                    prepared[standby] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Binds the engine to the alarm screen. {@code front} is drawn over {@code back}; only the
+     * view of the running player is opaque.
+     */
+    public synchronized void attach(TextureView front, TextureView back) {
+        views[0] = front;
+        views[1] = back;
+
+        for (int i = 0; i < views.length; i++) {
+            final int index = i;
+            TextureView view = views[i];
+            view.setSurfaceTextureListener(new TextureView.SurfaceTextureListener() {
+                @Override
+                public void onSurfaceTextureAvailable(SurfaceTexture texture, int width, int height) {
+                    setSurface(index, new Surface(texture));
+                }
+
+                @Override
+                public void onSurfaceTextureSizeChanged(SurfaceTexture texture, int width, int height) {
+                    fitVideo(index);
+                }
+
+                @Override
+                public boolean onSurfaceTextureDestroyed(SurfaceTexture texture) {
+                    setSurface(index, null);
+                    return true;
+                }
+
+                @Override
+                public void onSurfaceTextureUpdated(SurfaceTexture texture) {
+                }
+            });
+
+            if (view.isAvailable()) {
+                setSurface(i, new Surface(view.getSurfaceTexture()));
+            }
+        }
+        showPlayer(current);
+    }
+
+    /**
+     * Unbinds the views of a finishing alarm screen; the players stay around for reuse. Does
+     * nothing if a newer screen has attached its own views meanwhile.
+     */
+    public synchronized void detach(TextureView front) {
+        if (views[0] == front) {
+            detach();
+        }
+    }
+
+    private void detach() {
+        for (int i = 0; i < views.length; i++) {
+            if (views[i] != null) {
+                views[i].setSurfaceTextureListener(null);
+                views[i] = null;
+            }
+            setSurface(i, null);
+        }
+    }
+
+    /**
+     * Stops playback started with {@code owner}; a screen being torn down after a newer alarm
+     * took over the engine leaves that alarm alone.
+     */
+    public synchronized void stop(Listener owner) {
+        if (listener == owner) {
+            stop();
+        }
+    }
+
+    /**
+     * Stops playback and resets both players so they can be reused by the next alarm.
+     */
+    public synchronized void stop() {
+        end();
+        for (int i = 0; i < players.length; i++) {
+            if (players[i] != null) {
+                try {
+                    players[i].reset();
+                } catch (Exception e) {
+                    Log.e(TAG, "Error resetting player " + i, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the playback state and invalidates both players' sources without resetting them.
+     */
+    private void end() {
+        if (started && context != null) {
+            PowerStats.getInstance(context).add(PowerLedger.VIDEO_MS,
+                    SystemClock.elapsedRealtime() - playingSince);
+        }
+        for (int i = 0; i < players.length; i++) {
+            prepared[i] = false;
+            generation[i]++;
+        }
+        started = false;
+        current = 0;
+        listener = null;
+        playlist.clear();
+    }
+
+    /**
+     * Releases the players and surfaces, e.g. when memory is low and no alarm is ringing.
+     */
+    public synchronized void release() {
+        stop();
+        for (int i = 0; i < players.length; i++) {
+            if (players[i] != null) {
+                players[i].release();
+                players[i] = null;
+            }
+        }
+        detach();
+    }
+
+    /**
+     * Assigns playlist {@code item} to player {@code index} and returns the generation
+     * {@link #load} must still find. Called under the monitor.
+     */
+    private int claim(int index, int item) {
+        prepared[index] = false;
+        itemOf[index] = item;
+        return ++generation[index];
+    }
+
+    /**
+     * Resets player {@code index} and starts preparing its claimed item. Reset and
+     * setDataSource can block, so callers off the main thread run this without the monitor;
+     * does nothing once the player was claimed again or stopped.
+     */
+    private void load(int index, int gen) throws Exception {
+        MediaPlayer player;
+        Context context;
+        Uri source;
+        synchronized (this) {
+            if (generation[index] != gen) return;
+            player = players[index];
+            context = this.context;
+            source = Uri.parse(playlist.get(itemOf[index]));
+        }
+
+        player.reset();
+        player.setDataSource(context, source);
+        player.setOnPreparedListener(mp -> onMain(index, gen, () -> {
+            prepared[index] = true;
+            maybeStart();
+        }));
+        player.setOnVideoSizeChangedListener((mp, width, height) ->
+                onMain(index, gen, () -> fitVideo(index)));
+        player.setOnInfoListener((mp, what, extra) -> {
+            if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START) {
+                onMain(index, gen, () -> {
+                    if (lastTimeToFirstFrameMs < 0) {
+                        onFirstFrame();
+                    }
+                });
+            }
+            return false;
+        });
+        player.setOnCompletionListener(mp -> onMain(index, gen, () -> onCompletion(index)));
+        player.setOnErrorListener((mp, what, extra) -> {
+            Log.e(TAG, "Video error on player " + index + ": " + what + ", " + extra);
+            onMain(index, gen, () -> {
+                if (index != current) {
+                    // Losing the standby player only costs gapless looping (or its playlist
+                    // video); the current one keeps going
+                    prepared[index] = false;
+                    if (started) {
+                        players[current].setNextMediaPlayer(null);
+                        players[current].setLooping(true);
+                    }
+                } else {
+                    fail();
+                }
+            });
+            return true;
+        });
+
+        synchronized (this) {
+            if (generation[index] != gen) return;
+            // A surface attached while the player was being reset must be set again
+            if (surfaces[index] != null) {
+                player.setSurface(surfaces[index]);
+            }
+            player.prepareAsync();
+        }
+    }
+
+    /**
+     * Runs a callback of player {@code index} on the main thread under the engine's monitor,
+     * unless the player was reset since {@code gen}. Players created on a looper thread other
+     * than the main one report there.
+     */
+    private void onMain(int index, int gen, Runnable callback) {
+        Runnable guarded = () -> {
+            synchronized (this) {
+                if (generation[index] == gen) {
+                    callback.run();
+                }
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            guarded.run();
+        } else {
+            mainHandler.post(guarded);
+        }
+    }
+
+    private synchronized void setSurface(int index, Surface surface) {
+        if (surfaces[index] != null && surfaces[index] != surface) {
+            surfaces[index].release();
+        }
+        surfaces[index] = surface;
+
+        if (players[index] != null && !playlist.isEmpty()) {
+            try {
+                players[index].setSurface(surface);
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error setting surface on player " + index, e);
+            }
+        }
+        if (surface != null) {
+            fitVideo(index);
+            maybeStart();
+        }
+    }
+
+    private void maybeStart() {
+        if (started) {
+            // The standby player may become ready after playback began
+            chainNext();
+            return;
+        }
+        if (!prepared[0] || surfaces[0] == null) return;
+
+        started = true;
+        playingSince = SystemClock.elapsedRealtime();
+        current = 0;
+        lastTimeToFirstFrameMs = -1;
+        showPlayer(0);
+        players[0].start();
+        chainNext();
+    }
+
+    /**
+     * Queues the idle player behind the running one. Without a second prepared player the
+     * running one simply loops.
+     */
+    private void chainNext() {
+        int next = 1 - current;
+        if (prepared[next] && surfaces[next] != null) {
+            players[current].setLooping(false);
+            players[current].setNextMediaPlayer(players[next]);
+        } else {
+            players[current].setLooping(true);
+        }
+    }
+
+    private void onCompletion(int index) {
+        if (!started || index != current) return;
+
+        // setNextMediaPlayer has already started the other player; bring it to the front and
+        // rewind the finished one off-screen so it can take over next time
+        int next = 1 - index;
+        if (!prepared[next]) {
+            players[index].seekTo(0);
+            players[index].start();
+            return;
+        }
+
+        current = next;
+        showPlayer(next);
+
+        int following = (itemOf[next] + 1) % playlist.size();
+        if (itemOf[index] != following) {
+            // Load the next video of the playlist into the finished player on the startup
+            // thread; reset and setDataSource must not block the main thread
+            int gen = claim(index, following);
+            AlarmActivity.startupHandler().post(() -> {
+                try {
+                    load(index, gen);
+                } catch (Exception e) {
+                    synchronized (this) {
+                        if (generation[index] != gen) return;
+                        Log.e(TAG, "Error preparing player " + index + " for next video", e);
+                        prepared[index] = false;
+                        if (started) {
+                            players[current].setLooping(true);
+                        }
+                    }
+                }
+            });
+            return;
+        }
+
+        int gen = generation[index];
+        players[index].setOnSeekCompleteListener(mp -> onMain(index, gen, () -> {
+            if (started && current == next) {
+                players[next].setNextMediaPlayer(players[index]);
+            }
+        }));
+        players[index].seekTo(0);
+    }
+
+    private void showPlayer(int index) {
+        // The front view covers the back one whenever it is opaque
+        if (views[0] != null) {
+            views[0].setAlpha(index == 0 ? 1f : 0f);
+        }
+    }
+
+    private synchronized void fitVideo(int index) {
+        TextureView view = views[index];
+        MediaPlayer player = players[index];
+        if (view == null || player == null || !prepared[index]) return;
+
+        int videoWidth = player.getVideoWidth();
+        int videoHeight = player.getVideoHeight();
+        int viewWidth = view.getWidth();
+        int viewHeight = view.getHeight();
+        if (videoWidth == 0 || videoHeight == 0 || viewWidth == 0 || viewHeight == 0) return;
+
+        // Letterbox like VideoView did: scale to fit, keep the aspect ratio, center
+        float scale = Math.min((float) viewWidth / videoWidth, (float) viewHeight / videoHeight);
+        float scaleX = videoWidth * scale / viewWidth;
+        float scaleY = videoHeight * scale / viewHeight;
+
+        Matrix matrix = new Matrix();
+        matrix.setScale(scaleX, scaleY, viewWidth / 2f, viewHeight / 2f);
+        view.setTransform(matrix);
+    }
+
+    private void onFirstFrame() {
+        lastTimeToFirstFrameMs = SystemClock.uptimeMillis() - prepareStartedAt;
+        if (lastTimeToFirstFrameMs > FIRST_FRAME_TARGET_MS) {
+            Log.w(TAG, "Time to first frame " + lastTimeToFirstFrameMs + " ms exceeds target");
+        }
+        // The listener journals it as EVENT_FIRST_FRAME
+        if (listener != null) {
+            listener.onFirstFrame(lastTimeToFirstFrameMs);
+        }
+    }
+
+    private void fail() {
+        Listener failed = listener;
+        stop();
+        if (failed == null) return;
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            failed.onError();
+        } else {
+            // Preparing on a background thread failed
+            mainHandler.post(failed::onError);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.app.famz;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CPU wake lock for a ringing alarm, tied to the alarm session instead of the service
+ * lifetime. The lock is taken when the alarm starts ringing and dropped as soon as the alarm
+ * screen is visible (its window keeps the device awake from then on), or when the alarm is
+ * snoozed, stopped or times out. Held time is accumulated so it can be reported to Flutter.
+ */
+public class AlarmWakeLock {
+    private static final String TAG = "AlarmWakeLock";
+    private static final String PREFS_NAME = "famz_wake_lock";
+    private static final long TIMEOUT_MS = 10 * 60 * 1000L;
+
+    public enum State {
+        IDLE, RINGING, SNOOZED, STOPPED, TIMED_OUT
+    }
+
+    private static AlarmWakeLock instance;
+
+    private final PowerManager.WakeLock wakeLock;
+    private final SharedPreferences prefs;
+    private final PowerLedger power;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable timeout = () -> end(State.TIMED_OUT);
+
+    private State state = State.IDLE;
+    private long acquiredAt;
+
+    private AlarmWakeLock(Context context) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        wakeLock = powerManager.newWakeLock(
+                PowerManager.PARTIAL_WAKE_LOCK,
+                "VideoAlarmApp::AlarmWakeLock");
+        wakeLock.setReferenceCounted(false);
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        power = PowerStats.getInstance(context);
+    }
+
+    public static synchronized AlarmWakeLock getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmWakeLock(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * An alarm started ringing; keep the CPU up until its screen is showing.
+     */
+    public synchronized void onRinging() {
+        state = State.RINGING;
+        if (!wakeLock.isHeld()) {
+            // Account for a previous lock that expired on its own before this one
+            release();
+            acquiredAt = SystemClock.elapsedRealtime();
+            prefs.edit().putLong("acquisitions", prefs.getLong("acquisitions", 0) + 1).apply();
+        }
+        wakeLock.acquire(TIMEOUT_MS);
+        handler.removeCallbacks(timeout);
+        handler.postDelayed(timeout, TIMEOUT_MS);
+    }
+
+    /**
+     * The alarm screen is in the foreground and holds the device awake itself.
+     */
+    public synchronized void onAlarmVisible() {
+        release();
+    }
+
+    public void onSnoozed() {
+        end(State.SNOOZED);
+    }
+
+    public void onStopped() {
+        end(State.STOPPED);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long heldNow = wakeLock.isHeld() ? SystemClock.elapsedRealtime() - acquiredAt : 0;
+        stats.put("state", state.name());
+        stats.put("held", wakeLock.isHeld());
+        stats.put("acquisitions", prefs.getLong("acquisitions", 0));
+        stats.put("totalHeldMs", prefs.getLong("totalHeldMs", 0) + heldNow);
+        stats.put("maxHeldMs", Math.max(prefs.getLong("maxHeldMs", 0), heldNow));
+        stats.put("timeouts", prefs.getLong("timeouts", 0));
+        return stats;
+    }
+
+    private synchronized void end(State endState) {
+        if (state == State.RINGING) {
+            state = endState;
+        }
+        if (endState == State.TIMED_OUT) {
+            prefs.edit().putLong("timeouts", prefs.getLong("timeouts", 0) + 1).apply();
+        }
+        release();
+    }
+
+    private void release() {
+        handler.removeCallbacks(timeout);
+        if (acquiredAt == 0) return;
+
+        // A lock that hit its own timeout is no longer held but still cost the full time
+        long held = Math.min(SystemClock.elapsedRealtime() - acquiredAt, TIMEOUT_MS);
+        acquiredAt = 0;
+        if (wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+
+        prefs.edit()
+                .putLong("totalHeldMs", prefs.getLong("totalHeldMs", 0) + held)
+                .putLong("maxHeldMs", Math.max(prefs.getLong("maxHeldMs", 0), held))
+                .apply();
+        power.add(PowerLedger.WAKE_LOCK_MS, held);
+        // Normal releases are counted above; only the abnormal one is worth a log line
+        if (state == State.TIMED_OUT) {
+            Log.w(TAG, "Wake lock timed out after " + held + " ms");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.app.famz;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * System time in the device's current zone; unlike {@link Clock#systemDefaultZone} it follows
+ * later zone changes. The clock of the alarm engine and the power ledger.
+ */
+final class DeviceClock extends Clock {
+    static final DeviceClock INSTANCE = new DeviceClock();
+
+    private DeviceClock() {
+    }
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneId.systemDefault();
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return Clock.system(zone);
+    }
+}
@@ -0,0 +1,50 @@
+package com.app.famz;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Re-warms the cached Flutter engine while the device is charging, e.g. overnight after the
+ * process was killed, so the engine is ready when the morning alarm is dismissed. Charging is
+ * also a cheap window for alarm videos still waiting for an unmetered network.
+ */
+public class EngineWarmupJobService extends JobService {
+    private static final String TAG = "EngineWarmupJob";
+    private static final int JOB_ID = 0x46414D; // "FAM"
+    private static final long PERIOD_MS = 6 * 60 * 60 * 1000L;
+
+    /**
+     * Schedules the periodic job once; it is persisted across reboots.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, EngineWarmupJobService.class))
+                .setRequiresCharging(true)
+                .setPeriodic(PERIOD_MS)
+                .setPersisted(true)
+                .build();
+        scheduler.schedule(job);
+        Log.d(TAG, "Charging warm-up job scheduled");
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        FlutterEngineWarmer.getInstance(this).warmUp("charging", 0);
+        // The warm-up continues on the main thread; the job lasts until the downloads are done
+        VideoPrefetchJobService.runPending(this, () -> jobFinished(params, false));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return false;
+    }
+}
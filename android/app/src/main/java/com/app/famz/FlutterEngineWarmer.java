@@ -0,0 +1,175 @@
+package com.app.famz;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import io.flutter.FlutterInjector;
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.FlutterEngineCache;
+import io.flutter.embedding.engine.dart.DartExecutor;
+import io.flutter.embedding.engine.loader.FlutterLoader;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Keeps a started FlutterEngine in {@link FlutterEngineCache} so opening the app right after
+ * an alarm (or after boot) attaches to a running engine instead of paying a cold start.
+ *
+ * Flutter's assets and native library are loaded off the main thread; only creating the
+ * engine runs on it, after the loader is done. An engine nobody has claimed is evicted when
+ * the system reports memory pressure.
+ *
+ * The engine runs the {@code warmMain} entrypoint, which only sets up bindings and waits:
+ * the app's {@code main()} initializes Firebase, notifications and messaging, which must not
+ * happen headless or next to another engine. {@link #runMain} starts it once
+ * {@link MainActivity} has claimed the engine. No engine is warmed while the activity (and
+ * so an engine of its own) is alive.
+ */
+public class FlutterEngineWarmer implements ComponentCallbacks2 {
+    private static final String TAG = "FlutterEngineWarmer";
+    public static final String ENGINE_ID = "famz_main_engine";
+    private static final String WARM_ENTRYPOINT = "warmMain";
+    private static final String WARMUP_CHANNEL = "com.app.famz/warmup";
+    // After memory pressure, leave the memory alone for a while
+    private static final long BACKOFF_MS = 15 * 60 * 1000L;
+
+    private static FlutterEngineWarmer instance;
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean warming;
+    private boolean claimed;
+    private boolean mainStarted;
+    private int activities;
+    private long evictedAt;
+
+    private FlutterEngineWarmer(Context context) {
+        this.context = context;
+        context.registerComponentCallbacks(this);
+    }
+
+    public static synchronized FlutterEngineWarmer getInstance(Context context) {
+        if (instance == null) {
+            instance = new FlutterEngineWarmer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Starts an engine after {@code delayMillis} unless one is cached already. Safe to call
+     * from any thread.
+     */
+    public void warmUp(String reason, long delayMillis) {
+        handler.postDelayed(() -> start(reason), delayMillis);
+    }
+
+    /**
+     * The cached engine id for {@link MainActivity}, which then owns the engine; null when
+     * nothing is warm and the activity should create its own.
+     */
+    public String claim() {
+        if (!FlutterEngineCache.getInstance().contains(ENGINE_ID)) {
+            return null;
+        }
+        claimed = true;
+        return ENGINE_ID;
+    }
+
+    /**
+     * The activity is gone for good; the engine stays warm for the next launch but may be
+     * evicted again.
+     */
+    public void release() {
+        claimed = false;
+    }
+
+    /**
+     * Called from MainActivity's onCreate and onDestroy; warm-ups are skipped in between.
+     */
+    public void onActivityCreated() {
+        activities++;
+    }
+
+    public void onActivityDestroyed() {
+        activities--;
+    }
+
+    /**
+     * Lets the claimed warm engine run the app's real {@code main()}. Only the first call per
+     * engine does anything; a recreated activity finds the app already running.
+     */
+    public void runMain(FlutterEngine engine) {
+        if (mainStarted || engine != FlutterEngineCache.getInstance().get(ENGINE_ID)) return;
+        mainStarted = true;
+        new MethodChannel(engine.getDartExecutor().getBinaryMessenger(), WARMUP_CHANNEL)
+                .invokeMethod("runMain", null);
+    }
+
+    private void start(String reason) {
+        if (warming || FlutterEngineCache.getInstance().contains(ENGINE_ID)) return;
+        if (activities > 0) {
+            Log.d(TAG, "Skipping warm-up (" + reason + ") while the app is open");
+            return;
+        }
+        if (evictedAt != 0 && SystemClock.elapsedRealtime() - evictedAt < BACKOFF_MS) {
+            Log.d(TAG, "Skipping warm-up (" + reason + ") after memory pressure");
+            return;
+        }
+        warming = true;
+
+        long started = System.currentTimeMillis();
+        FlutterLoader loader = FlutterInjector.instance().flutterLoader();
+        loader.startInitialization(context);
+        loader.ensureInitializationCompleteAsync(context, null, handler, () -> {
+            warming = false;
+            // The activity may have opened while the loader was busy
+            if (activities > 0 || FlutterEngineCache.getInstance().contains(ENGINE_ID)) return;
+
+            FlutterEngine engine = new FlutterEngine(context);
+            engine.getDartExecutor().executeDartEntrypoint(new DartExecutor.DartEntrypoint(
+                    loader.findAppBundlePath(), WARM_ENTRYPOINT));
+            FlutterEngineCache.getInstance().put(ENGINE_ID, engine);
+            mainStarted = false;
+
+            Log.d(TAG, "Engine warmed (" + reason + ") in " +
+                    (System.currentTimeMillis() - started) + " ms");
+        });
+    }
+
+    private void evict(String reason) {
+        evictedAt = SystemClock.elapsedRealtime();
+        if (claimed) return;
+
+        FlutterEngine engine = FlutterEngineCache.getInstance().get(ENGINE_ID);
+        if (engine == null) return;
+
+        FlutterEngineCache.getInstance().remove(ENGINE_ID);
+        engine.destroy();
+        Log.d(TAG, "Engine evicted: " + reason);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // Background levels mean the process is on the kill list; running-low levels mean a
+        // foreground app (often the alarm screen itself) needs the memory
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW
+                || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            evict("trim level " + level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        evict("low memory");
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
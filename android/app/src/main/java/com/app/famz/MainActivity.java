@@ -1,19 +1,17 @@
 package com.app.famz;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
-import android.content.Context;
-import android.content.Intent;
-import android.os.Build;
+import android.os.Bundle;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import java.util.HashMap;
-import java.util.TimeZone;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import io.flutter.embedding.android.FlutterActivity;
 import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 
@@ -21,10 +19,60 @@ public class MainActivity extends FlutterActivity {
     private static final String CHANNEL = "com.app.famz/alarm";
     private static final String TAG = "MainActivity";
 
+    private String cachedEngineId;
+    private boolean engineClaimed;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        // Before super, which creates or claims the engine
+        FlutterEngineWarmer.getInstance(this).onActivityCreated();
+        super.onCreate(savedInstanceState);
+
+        // Keep an engine warm for the next launch while the device charges
+        EngineWarmupJobService.schedule(this);
+    }
+
+    @Override
+    public String getCachedEngineId() {
+        // Asked several times per activity; claim the warm engine only once
+        if (!engineClaimed) {
+            engineClaimed = true;
+            cachedEngineId = FlutterEngineWarmer.getInstance(this).claim();
+        }
+        return cachedEngineId;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        FlutterEngineWarmer warmer = FlutterEngineWarmer.getInstance(this);
+        warmer.onActivityDestroyed();
+        if (cachedEngineId != null) {
+            warmer.release();
+        }
+    }
+
+    @Override
+    public void cleanUpFlutterEngine(@NonNull FlutterEngine flutterEngine) {
+        super.cleanUpFlutterEngine(flutterEngine);
+
+        // A cached engine outlives this activity; drop the handler that references it
+        new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL)
+                .setMethodCallHandler(null);
+    }
+
     @Override
     public void configureFlutterEngine(@NonNull FlutterEngine flutterEngine) {
         super.configureFlutterEngine(flutterEngine);
 
+        // The stream holds no reference to this activity, so it stays registered on a cached
+        // engine; the engine tells it when Dart goes away
+        AlarmEventStream events = AlarmEventStream.getInstance();
+        new EventChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), AlarmEventStream.CHANNEL)
+                .setStreamHandler(events);
+        flutterEngine.addEngineLifecycleListener(events);
+
         new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL)
                 .setMethodCallHandler(
                         (call, result) -> {
@@ -35,68 +83,79 @@ public class MainActivity extends FlutterActivity {
                                 case "cancelAlarm":
                                     cancelAlarm(call, result);
                                     break;
+                                case "scheduleAlarms":
+                                    scheduleAlarms(call, result);
+                                    break;
+                                case "cancelAlarms":
+                                    cancelAlarms(call, result);
+                                    break;
                                 case "scheduleSnoozeAlarm":
                                     scheduleSnoozeAlarm(call, result);
                                     break;
+                                case "cancelSnooze":
+                                    cancelSnooze(call, result);
+                                    break;
+                                case "setSnoozeSettings":
+                                    setSnoozeSettings(call, result);
+                                    break;
+                                case "cancelAlarmGroup":
+                                    cancelAlarmGroup(call, result);
+                                    break;
+                                case "setAlarmCoalescingWindow":
+                                    setAlarmCoalescingWindow(call, result);
+                                    break;
+                                case "setVideoCacheBudget":
+                                    setVideoCacheBudget(call, result);
+                                    break;
+                                case "setAlarmVolumeRamp":
+                                    setAlarmVolumeRamp(call, result);
+                                    break;
+                                case "getAlarmLatencyStats":
+                                    result.success(AlarmLatencyTracker.getInstance(this).getStats());
+                                    break;
+                                case "getAlarmBackendStats":
+                                    result.success(AlarmLatencyTracker.getInstance(this).getBackendStats());
+                                    break;
+                                case "getAlarmJournal":
+                                    result.success(AlarmEventLog.getInstance(this).snapshot());
+                                    break;
+                                case "getPowerStats":
+                                    result.success(PowerStats.getInstance(this).snapshot());
+                                    break;
+                                case "getWakeLockStats":
+                                    result.success(AlarmWakeLock.getInstance(this).getStats());
+                                    break;
                                 default:
                                     result.notImplemented();
                                     break;
                             }
                         }
                 );
+
+        // A warm engine is parked in warmMain until the channels above are in place
+        if (cachedEngineId != null) {
+            FlutterEngineWarmer.getInstance(this).runMain(flutterEngine);
+        }
     }
 
     private void scheduleAlarm(MethodCall call, MethodChannel.Result result) {
-        String alarmId = call.argument("alarmId");
-        Long timestamp = call.argument("timestamp");
-        String videoPath = call.argument("videoPath");
-        String timeZoneName = call.argument("timeZone");
-        Boolean isRecurring = call.argument("isRecurring");
-        Integer weekday = call.argument("weekday");
-        String recurringId = call.argument("recurringId");
-
-        if (alarmId == null || timestamp == null || videoPath == null) {
+        AlarmSpec spec;
+        try {
+            spec = AlarmSpec.fromArguments((Map<?, ?>) call.arguments);
+        } catch (IllegalArgumentException e) {
+            // Also a bad weekday mask, time, zone or backend
+            result.error("INVALID_ARGUMENT", e.getMessage(), null);
+            return;
+        } catch (ClassCastException e) {
             result.error("INVALID_ARGUMENT", "Missing required argument", null);
             return;
         }
 
         try {
-            AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-            Intent intent = new Intent(this, AlarmReceiver.class);
-            intent.setAction(AlarmReceiver.ACTION_ALARM);
-            intent.putExtra("alarmId", alarmId);
-            intent.putExtra("videoPath", videoPath);
-            intent.putExtra("timestamp", timestamp);
-
-            // Add recurring information if applicable
-            if (isRecurring != null && isRecurring) {
-                intent.putExtra("isRecurring", true);
-                if (weekday != null) intent.putExtra("weekday", weekday);
-                if (recurringId != null) intent.putExtra("recurringId", recurringId);
-            }
-
-            // Create a unique request code from the alarm ID
-            int requestCode = alarmId.hashCode();
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(
-                        AlarmManager.RTC_WAKEUP,
-                        timestamp,
-                        pendingIntent);
-            } else {
-                alarmManager.setExact(
-                        AlarmManager.RTC_WAKEUP,
-                        timestamp,
-                        pendingIntent);
-            }
-
-            Log.d(TAG, "Alarm scheduled: " + alarmId + " at " + timestamp);
+            AlarmEntry entry = AlarmEntry.fromSpec(spec, System.currentTimeMillis());
+            AlarmScheduler.getInstance(this).schedule(entry);
+
+            Log.d(TAG, "Alarm scheduled: " + entry.alarmId + " at " + entry.triggerAtMillis);
 
             result.success(true);
         } catch (Exception e) {
@@ -105,6 +164,30 @@ public class MainActivity extends FlutterActivity {
         }
     }
 
+    private void scheduleAlarms(MethodCall call, MethodChannel.Result result) {
+        List<?> alarms = call.argument("alarms");
+
+        if (alarms == null) {
+            result.error("INVALID_ARGUMENT", "Missing alarms", null);
+            return;
+        }
+
+        // Each item reports its own outcome; valid items are applied in one native pass
+        List<AlarmEntry> entries = new ArrayList<>(alarms.size());
+        List<Map<String, Object>> results =
+                AlarmBatch.decodeAlarms(alarms, System.currentTimeMillis(), entries);
+
+        try {
+            AlarmScheduler.getInstance(this).scheduleAll(entries);
+        } catch (Exception e) {
+            Log.e(TAG, "Error scheduling alarms", e);
+            AlarmBatch.markFailed(results, "SCHEDULE_ERROR");
+        }
+
+        Log.d(TAG, "Batch scheduled " + entries.size() + " of " + alarms.size() + " alarms");
+        result.success(results);
+    }
+
     private void cancelAlarm(MethodCall call, MethodChannel.Result result) {
         String alarmId = call.argument("alarmId");
 
@@ -114,20 +197,7 @@ public class MainActivity extends FlutterActivity {
         }
 
         try {
-            AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-            Intent intent = new Intent(this, AlarmReceiver.class);
-            intent.setAction(AlarmReceiver.ACTION_ALARM);
-
-            // Use the same request code as when scheduling
-            int requestCode = alarmId.hashCode();
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            alarmManager.cancel(pendingIntent);
+            AlarmScheduler.getInstance(this).cancel(alarmId);
 
             Log.d(TAG, "Alarm canceled: " + alarmId);
 
@@ -138,6 +208,86 @@ public class MainActivity extends FlutterActivity {
         }
     }
 
+    private void cancelAlarms(MethodCall call, MethodChannel.Result result) {
+        List<?> alarmIds = call.argument("alarmIds");
+
+        if (alarmIds == null) {
+            result.error("INVALID_ARGUMENT", "Missing alarmIds", null);
+            return;
+        }
+
+        List<String> canceled = new ArrayList<>(alarmIds.size());
+        List<Map<String, Object>> results = AlarmBatch.decodeIds(alarmIds, canceled);
+
+        try {
+            AlarmScheduler.getInstance(this).cancelAll(canceled);
+        } catch (Exception e) {
+            Log.e(TAG, "Error canceling alarms", e);
+            AlarmBatch.markFailed(results, "CANCEL_ERROR");
+        }
+
+        Log.d(TAG, "Batch canceled " + canceled.size() + " of " + alarmIds.size() + " alarms");
+        result.success(results);
+    }
+
+    private void cancelAlarmGroup(MethodCall call, MethodChannel.Result result) {
+        String recurringId = call.argument("recurringId");
+
+        if (recurringId == null) {
+            result.error("INVALID_ARGUMENT", "Missing recurringId", null);
+            return;
+        }
+
+        try {
+            int count = AlarmScheduler.getInstance(this).cancelGroup(recurringId);
+
+            Log.d(TAG, "Alarm group canceled: " + recurringId + " (" + count + " alarms)");
+
+            result.success(count);
+        } catch (Exception e) {
+            Log.e(TAG, "Error canceling alarm group", e);
+            result.error("CANCEL_ERROR", e.getMessage(), null);
+        }
+    }
+
+    private void setAlarmCoalescingWindow(MethodCall call, MethodChannel.Result result) {
+        Number windowMillis = call.argument("windowMillis");
+
+        if (windowMillis == null) {
+            result.error("INVALID_ARGUMENT", "Missing windowMillis", null);
+            return;
+        }
+
+        AlarmScheduler.getInstance(this).setCoalesceWindowMillis(windowMillis.longValue());
+        result.success(true);
+    }
+
+    private void setVideoCacheBudget(MethodCall call, MethodChannel.Result result) {
+        Number budgetBytes = call.argument("budgetBytes");
+
+        if (budgetBytes == null) {
+            result.error("INVALID_ARGUMENT", "Missing budgetBytes", null);
+            return;
+        }
+
+        AlarmVideoCache.getInstance(this).setBudgetBytes(budgetBytes.longValue());
+        result.success(true);
+    }
+
+    private void setAlarmVolumeRamp(MethodCall call, MethodChannel.Result result) {
+        Number startVolume = call.argument("startVolume");
+        Number rampMillis = call.argument("rampMillis");
+
+        if (startVolume == null || rampMillis == null) {
+            result.error("INVALID_ARGUMENT", "Missing required argument", null);
+            return;
+        }
+
+        AlarmAudioEngine.getInstance(this)
+                .setVolumeRamp(startVolume.floatValue(), rampMillis.longValue());
+        result.success(true);
+    }
+
     private void scheduleSnoozeAlarm(MethodCall call, MethodChannel.Result result) {
         String alarmId = call.argument("alarmId");
         Long timestamp = call.argument("timestamp");
@@ -149,39 +299,45 @@ public class MainActivity extends FlutterActivity {
         }
 
         try {
-            AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-            Intent intent = new Intent(this, AlarmReceiver.class);
-            intent.setAction(AlarmReceiver.ACTION_ALARM);
-            intent.putExtra("alarmId", alarmId);
-            intent.putExtra("videoPath", videoPath);
-            intent.putExtra("timestamp", timestamp);
-            intent.putExtra("isSnooze", true);
-
-            int requestCode = alarmId.hashCode();
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(
-                        AlarmManager.RTC_WAKEUP,
-                        timestamp,
-                        pendingIntent);
-            } else {
-                alarmManager.setExact(
-                        AlarmManager.RTC_WAKEUP,
-                        timestamp,
-                        pendingIntent);
-            }
-
-            Log.d(TAG, "Snooze alarm scheduled: " + alarmId + " at " + timestamp);
+            // Only the ring screen advances the snooze chain; moving a pending snooze from
+            // Flutter keeps its count
+            AlarmEntry alarm = new AlarmEntry(alarmId, timestamp, videoPath, null, 0, -1, -1, null);
+            AlarmScheduler.getInstance(this).getSnoozer().schedule(alarm, timestamp);
             result.success(true);
         } catch (Exception e) {
             Log.e(TAG, "Error scheduling snooze alarm", e);
             result.error("SCHEDULE_ERROR", e.getMessage(), null);
         }
     }
-}
\ No newline at end of file
+
+    private void cancelSnooze(MethodCall call, MethodChannel.Result result) {
+        String alarmId = call.argument("alarmId");
+
+        if (alarmId == null) {
+            result.error("INVALID_ARGUMENT", "Missing alarmId", null);
+            return;
+        }
+
+        try {
+            // true if a snooze was pending
+            result.success(AlarmScheduler.getInstance(this).getSnoozer().cancel(alarmId));
+        } catch (Exception e) {
+            Log.e(TAG, "Error canceling snooze", e);
+            result.error("CANCEL_ERROR", e.getMessage(), null);
+        }
+    }
+
+    private void setSnoozeSettings(MethodCall call, MethodChannel.Result result) {
+        Number durationMillis = call.argument("durationMillis");
+        Number maxCount = call.argument("maxCount");
+
+        if (durationMillis == null || maxCount == null) {
+            result.error("INVALID_ARGUMENT", "Missing required argument", null);
+            return;
+        }
+
+        AlarmScheduler.getInstance(this)
+                .setSnoozeSettings(durationMillis.longValue(), maxCount.intValue());
+        result.success(true);
+    }
+}
@@ -0,0 +1,121 @@
+package com.app.famz;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Time and date display for the alarm screen. Ticks on minute boundaries (and on
+ * ACTION_TIME_TICK / clock changes) instead of every second, reuses its formatters and Date,
+ * and only touches the views when the displayed text actually changes.
+ */
+public class MinuteClock {
+    private static final long MINUTE_MS = 60 * 1000L;
+
+    private final Context context;
+    private final TextView timeView;
+    private final TextView dateView;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Date now = new Date();
+
+    private SimpleDateFormat timeFormat;
+    private SimpleDateFormat dateFormat;
+    private String shownTime;
+    private String shownDate;
+    private boolean running;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            update();
+            scheduleNextTick();
+        }
+    };
+
+    private final BroadcastReceiver timeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                createFormats();
+            }
+            update();
+            // The wall clock may have jumped; realign to the new minute boundary
+            scheduleNextTick();
+        }
+    };
+
+    public MinuteClock(Context context, TextView timeView, TextView dateView) {
+        this.context = context;
+        this.timeView = timeView;
+        this.dateView = dateView;
+        createFormats();
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIME_TICK);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        context.registerReceiver(timeReceiver, filter);
+
+        update();
+        scheduleNextTick();
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+
+        handler.removeCallbacks(tick);
+        context.unregisterReceiver(timeReceiver);
+    }
+
+    private void createFormats() {
+        Locale locale = Locale.getDefault();
+        // Format time (HH:mm)
+        timeFormat = new SimpleDateFormat("HH:mm", locale);
+        // Format date (e.g., "Monday, January 15")
+        dateFormat = new SimpleDateFormat("EEEE, MMMM d", locale);
+
+        TimeZone timeZone = TimeZone.getDefault();
+        timeFormat.setTimeZone(timeZone);
+        dateFormat.setTimeZone(timeZone);
+    }
+
+    private void update() {
+        now.setTime(System.currentTimeMillis());
+
+        String time = timeFormat.format(now);
+        if (!time.equals(shownTime)) {
+            shownTime = time;
+            timeView.setText(time);
+
+            // The date can only change when the minute does
+            String date = dateFormat.format(now);
+            if (!date.equals(shownDate)) {
+                shownDate = date;
+                dateView.setText(date);
+            }
+        }
+    }
+
+    private void scheduleNextTick() {
+        handler.removeCallbacks(tick);
+        if (!running) return;
+
+        long delay = MINUTE_MS - System.currentTimeMillis() % MINUTE_MS;
+        handler.postDelayed(tick, delay);
+    }
+}
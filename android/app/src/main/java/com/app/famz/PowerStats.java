@@ -0,0 +1,29 @@
+package com.app.famz;
+
+import android.content.Context;
+
+import java.io.File;
+
+/**
+ * The app-wide {@link PowerLedger}: wakeups, foreground-service, wake-lock, vibrator and
+ * decode time per day, handed to Flutter so wakeup budgets and scheduling changes can be
+ * checked against real numbers.
+ */
+public class PowerStats {
+    private static final String LEDGER_FILE = "power_ledger.bin";
+    // Five weeks of days at 64 bytes each
+    private static final int DAYS = 35;
+
+    private static PowerLedger instance;
+
+    private PowerStats() {
+    }
+
+    public static synchronized PowerLedger getInstance(Context context) {
+        if (instance == null) {
+            instance = new PowerLedger(new File(context.getFilesDir(), LEDGER_FILE),
+                    DAYS, DeviceClock.INSTANCE);
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,157 @@
+package com.app.famz;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Downloads the remote videos of scheduled alarms before they fire.
+ *
+ * One job covers all missing videos. Its constraints follow the most pressing
+ * {@link PrefetchTier}: hours ahead it waits for an unmetered network (the charging job in
+ * {@link EngineWarmupJobService} also runs it), closer to the alarm any network will do, and
+ * in the last hour it runs right away. The job's deadline is the next escalation, so a
+ * download never waits in a tier it has outgrown.
+ */
+public class VideoPrefetchJobService extends JobService {
+    private static final String TAG = "VideoPrefetchJob";
+    private static final int JOB_ID = 0x464156; // "FAV"
+
+    /**
+     * Schedules (or replaces) the job for the currently missing videos, or cancels it if
+     * none are missing.
+     */
+    public static void schedule(Context context) {
+        schedule(context, 0);
+    }
+
+    private static void schedule(Context context, long delayMillis) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null) return;
+
+        Map<String, Long> deadlines = deadlines(context);
+        if (deadlines.isEmpty()) {
+            scheduler.cancel(JOB_ID);
+            return;
+        }
+
+        long remaining = remainingMillis(deadlines);
+        PrefetchTier tier = PrefetchTier.forRemaining(remaining);
+
+        JobInfo.Builder job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, VideoPrefetchJobService.class))
+                .setRequiredNetworkType(tier == PrefetchTier.RELAXED
+                        ? JobInfo.NETWORK_TYPE_UNMETERED
+                        : JobInfo.NETWORK_TYPE_ANY)
+                .setPersisted(true);
+
+        if (tier == PrefetchTier.URGENT && delayMillis == 0
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            job.setExpedited(true);
+        } else {
+            job.setMinimumLatency(delayMillis);
+            // Run at the next escalation even if this tier's constraints never came
+            long escalatesIn = PrefetchTier.escalatesInMillis(remaining);
+            job.setOverrideDeadline(Math.max(delayMillis,
+                    escalatesIn > 0 ? escalatesIn : tier.retryDelayMillis));
+        }
+
+        scheduler.schedule(job.build());
+        Log.d(TAG, deadlines.size() + " videos to prefetch, " + tier + " with " +
+                remaining + " ms left");
+    }
+
+    /**
+     * Downloads the missing videos the current network and battery state allow, then calls
+     * {@code done} and reschedules the job for whatever is still missing.
+     */
+    public static void runPending(Context context, Runnable done) {
+        Context app = context.getApplicationContext();
+        boolean metered = isMetered(app);
+        boolean charging = isCharging(app);
+
+        List<String> sources = new ArrayList<>();
+        for (Map.Entry<String, Long> deadline : deadlines(app).entrySet()) {
+            PrefetchTier tier = PrefetchTier.forRemaining(deadline.getValue() - System.currentTimeMillis());
+            if (tier.allows(metered, charging)) {
+                sources.add(deadline.getKey());
+            }
+        }
+
+        AlarmVideoCache.getInstance(app).fetch(sources, pinnedPaths(app), missing -> {
+            if (done != null) {
+                done.run();
+            }
+            // Failed downloads keep their partial files and retry after the tier's delay
+            schedule(app, missing.isEmpty()
+                    ? 0
+                    : PrefetchTier.forRemaining(remainingMillis(deadlines(app))).retryDelayMillis);
+        });
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        runPending(this, () -> jobFinished(params, false));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The download keeps going on the cache thread; its completion reschedules the job
+        return false;
+    }
+
+    private static Map<String, Long> deadlines(Context context) {
+        AlarmVideoCache cache = AlarmVideoCache.getInstance(context);
+        return PrefetchTier.deadlines(
+                AlarmScheduler.getInstance(context).getRegistry().entries(),
+                source -> AlarmVideoCache.isRemote(source) && !cache.isCached(source));
+    }
+
+    private static Set<String> pinnedPaths(Context context) {
+        Set<String> pinned = new HashSet<>();
+        for (AlarmEntry entry : AlarmScheduler.getInstance(context).getRegistry().entries()) {
+            pinned.add(entry.videoPath);
+        }
+        return pinned;
+    }
+
+    /**
+     * Time left until the earliest deadline.
+     */
+    private static long remainingMillis(Map<String, Long> deadlines) {
+        long remaining = Long.MAX_VALUE;
+        for (long deadline : deadlines.values()) {
+            remaining = Math.min(remaining, deadline - System.currentTimeMillis());
+        }
+        return remaining;
+    }
+
+    private static boolean isMetered(Context context) {
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        return connectivity == null || connectivity.isActiveNetworkMetered();
+    }
+
+    private static boolean isCharging(Context context) {
+        Intent battery = context.registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        int status = battery != null ? battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1) : -1;
+        return status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+}
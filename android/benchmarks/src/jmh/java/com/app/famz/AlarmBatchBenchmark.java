@@ -0,0 +1,34 @@
+package com.app.famz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Native side of a scheduleAlarms call: decoding the argument maps into entries and building
+ * the per-item results sent back to Flutter.
+ */
+@State(Scope.Thread)
+public class AlarmBatchBenchmark {
+    @Param({"1", "100", "10000"})
+    public int alarmCount;
+
+    private List<Map<String, Object>> arguments;
+
+    @Setup
+    public void setUp() {
+        arguments = BenchmarkAlarms.arguments(alarmCount);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> decodeAlarms() {
+        List<AlarmEntry> entries = new ArrayList<>(arguments.size());
+        return AlarmBatch.decodeAlarms(arguments, BenchmarkAlarms.START_MILLIS, entries);
+    }
+}
@@ -0,0 +1,52 @@
+package com.app.famz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A journal write as done on every hop of the fire path, and the export done by the channel
+ * handler for a full ring. Run with {@code -prof gc} to confirm writes allocate nothing.
+ */
+@State(Scope.Thread)
+public class AlarmJournalBenchmark {
+    private static final int CAPACITY = 4096;
+
+    private File file;
+    private AlarmJournal journal;
+    private int code;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("alarm-journal", ".bin");
+        journal = new AlarmJournal(file, CAPACITY, Clock.systemUTC());
+        for (int i = 0; i < CAPACITY; i++) {
+            journal.record(AlarmJournal.EVENT_RECEIVED, i, AlarmJournal.RESULT_OK, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public void record() {
+        code = (code + 1) & 0xFFF;
+        journal.record(AlarmJournal.EVENT_FIRST_FRAME, code, AlarmJournal.RESULT_OK, 120);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> snapshot() {
+        return journal.snapshot();
+    }
+}
@@ -0,0 +1,77 @@
+package com.app.famz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Registry writes as done by the channel handler and the receiver, and the log replay done
+ * when the scheduler starts after a boot. Writes include the fsync the registry performs.
+ */
+@State(Scope.Thread)
+public class AlarmRegistryBenchmark {
+    private static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    @Param({"1", "100", "10000"})
+    public int alarmCount;
+
+    private File dir;
+    private File replayFile;
+    private AlarmRegistry registry;
+    private List<AlarmEntry> entries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("alarm-registry").toFile();
+        entries = BenchmarkAlarms.entries(alarmCount);
+
+        registry = new AlarmRegistry(new File(dir, "live.bin"));
+        registry.putAll(entries);
+
+        replayFile = new File(dir, "replay.bin");
+        new AlarmRegistry(replayFile).putAll(entries);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Re-arming one existing alarm, e.g. a recurring alarm moving to its next occurrence.
+     */
+    @Benchmark
+    public AlarmEntry put() {
+        next = (next + 1) % alarmCount;
+        AlarmEntry entry = entries.get(next);
+        return registry.put(entry.withTriggerAt(entry.triggerAtMillis + WEEK_MILLIS));
+    }
+
+    /**
+     * Flutter re-syncing every alarm in one scheduleAlarms call.
+     */
+    @Benchmark
+    public List<AlarmEntry> putAll() {
+        return registry.putAll(entries);
+    }
+
+    @Benchmark
+    public int replay() {
+        return new AlarmRegistry(replayFile).size();
+    }
+}
@@ -0,0 +1,62 @@
+package com.app.famz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic alarm fixtures for the benchmarks: a fixed seed and a fixed start time, so
+ * every run on every commit measures the same data.
+ */
+final class BenchmarkAlarms {
+    static final long START_MILLIS = 1767225600000L; // 2026-01-01T00:00:00Z
+    static final String VIDEO_PATH = "/data/user/0/com.app.famz/app_flutter/videos/alarm.mp4";
+
+    private BenchmarkAlarms() {
+    }
+
+    /**
+     * {@code count} alarms, every other one recurring on a random set of weekdays.
+     */
+    static List<AlarmEntry> entries(int count) {
+        Random random = new Random(42);
+        List<AlarmEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean recurring = i % 2 == 0;
+            entries.add(new AlarmEntry(
+                    "alarm_" + i,
+                    START_MILLIS + random.nextInt(7 * 24 * 60) * 60_000L,
+                    VIDEO_PATH,
+                    recurring ? "Europe/Berlin" : null,
+                    recurring ? 1 + random.nextInt(RecurrenceRule.ALL_DAYS) : 0,
+                    random.nextInt(24),
+                    random.nextInt(60),
+                    null));
+        }
+        return entries;
+    }
+
+    /**
+     * The same alarms as the argument maps Flutter sends to scheduleAlarms.
+     */
+    static List<Map<String, Object>> arguments(int count) {
+        List<Map<String, Object>> arguments = new ArrayList<>(count);
+        for (AlarmEntry entry : entries(count)) {
+            Map<String, Object> args = new HashMap<>();
+            args.put("alarmId", entry.alarmId);
+            args.put("timestamp", entry.triggerAtMillis);
+            args.put("videoPath", entry.videoPath);
+            args.put("timeZone", entry.timeZone != null ? entry.timeZone : "");
+            args.put("isRecurring", entry.isRecurring());
+            if (entry.isRecurring()) {
+                args.put("weekdayMask", entry.weekdayMask);
+                args.put("hour", entry.hour);
+                args.put("minute", entry.minute);
+            }
+            arguments.add(args);
+        }
+        return arguments;
+    }
+}
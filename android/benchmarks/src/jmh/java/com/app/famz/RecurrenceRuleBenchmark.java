@@ -0,0 +1,42 @@
+package com.app.famz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.ZoneId;
+
+/**
+ * Next-occurrence computation, which runs on every schedule, fire and boot replay.
+ */
+@State(Scope.Thread)
+public class RecurrenceRuleBenchmark {
+    private static final int STEPS = 1024;
+
+    @Param({"1", "62", "127"})
+    public int weekdayMask;
+
+    @Param({"UTC", "America/New_York"})
+    public String zone;
+
+    private RecurrenceRule rule;
+    private final long[] instants = new long[STEPS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        rule = new RecurrenceRule(weekdayMask, 7, 30, ZoneId.of(zone));
+        // Instants spread over a year, so DST transition days are part of the mix
+        for (int i = 0; i < STEPS; i++) {
+            instants[i] = BenchmarkAlarms.START_MILLIS + i * (365L * 24 * 60 * 60 * 1000 / STEPS);
+        }
+    }
+
+    @Benchmark
+    public long nextAfter() {
+        next = (next + 1) & (STEPS - 1);
+        return rule.nextAfter(instants[next]);
+    }
+}
@@ -0,0 +1,56 @@
+package com.app.famz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+
+/**
+ * Request-code lookups and the assign/release churn of canceling and re-adding an alarm.
+ */
+@State(Scope.Thread)
+public class RequestCodeIndexBenchmark {
+    private static final int GROUP_SIZE = 7;
+
+    @Param({"1", "100", "10000"})
+    public int alarmCount;
+
+    private RequestCodeIndex index;
+    private String[] alarmIds;
+    private String[] groupIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        index = new RequestCodeIndex();
+        alarmIds = new String[alarmCount];
+        groupIds = new String[alarmCount];
+        for (int i = 0; i < alarmCount; i++) {
+            alarmIds[i] = "alarm_" + i;
+            groupIds[i] = "group_" + i / GROUP_SIZE;
+            index.assign(alarmIds[i], groupIds[i], RequestCodeIndex.NO_CODE);
+        }
+    }
+
+    @Benchmark
+    public int codeFor() {
+        next = (next + 1) % alarmCount;
+        return index.codeFor(alarmIds[next]);
+    }
+
+    @Benchmark
+    public int reassign() {
+        next = (next + 1) % alarmCount;
+        index.release(alarmIds[next], groupIds[next]);
+        return index.assign(alarmIds[next], groupIds[next], RequestCodeIndex.NO_CODE);
+    }
+
+    @Benchmark
+    public Set<String> group() {
+        next = (next + 1) % alarmCount;
+        return index.group(groupIds[next]);
+    }
+}
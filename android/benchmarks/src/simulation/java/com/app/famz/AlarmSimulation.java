@@ -0,0 +1,477 @@
+package com.app.famz;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Drives the real {@link AlarmEngine} through a simulated year against a fake clock and a
+ * recording slot: batch scheduling through the channel decoder, slot fires as the receiver
+ * handles them, snoozes, user edits, reboots and time zone changes as the receiver handles
+ * them. Every fire is checked against an independent day-by-day recurrence oracle and the
+ * local time it was set for, and the run reports throughput, misses and drift. Deterministic
+ * for a given seed.
+ */
+public final class AlarmSimulation {
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final int MAX_SNOOZES = 3;
+    private static final long COALESCE_WINDOW_MS = 30 * 1000L;
+    private static final long MAX_DELIVERY_MS = 1500;
+    private static final String[] ZONES = {
+            "Europe/Berlin", "America/New_York", "Asia/Tokyo", "Australia/Sydney"};
+    private static final String VIDEO_PATH = "/data/user/0/com.app.famz/app_flutter/videos/alarm.mp4";
+
+    private final int alarmCount;
+    private final int days;
+    private final Random random;
+    private final FakeClock clock;
+    private final File registryFile;
+    private final RecordingSlot slot = new RecordingSlot();
+    private final Map<String, Long> lastFired = new HashMap<>();
+    private final List<Map<String, Object>> arguments = new ArrayList<>();
+    private AlarmEngine engine;
+    private SnoozeController snoozer;
+    private int zoneIndex;
+
+    // Results
+    private long scheduleOps;
+    private long scheduleNanos;
+    private long cancelOps;
+    private long cancelNanos;
+    private long fires;
+    private long wakeups;
+    private long emptyWakeups;
+    private long snoozes;
+    private long snoozeLimitHits;
+    private long reboots;
+    private long zoneChanges;
+    private long movedByZone;
+    private long missedWhileOff;
+    private long late;
+    private long duplicates;
+    private long wrongLocalTime;
+    private long skipped;
+    private long overdueAtEnd;
+    private final LongSamples drift = new LongSamples();
+
+    private AlarmSimulation(int alarmCount, int days, long seed, File registryFile) {
+        this.alarmCount = alarmCount;
+        this.days = days;
+        this.random = new Random(seed);
+        this.registryFile = registryFile;
+        TimeZone.setDefault(TimeZone.getTimeZone(ZONES[0]));
+        this.clock = new FakeClock(ZonedDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneId.of(ZONES[0]))
+                .toInstant().toEpochMilli());
+    }
+
+    public static void main(String[] args) throws IOException {
+        int alarms = 2000;
+        int days = 365;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--alarms":
+                    alarms = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--days":
+                    days = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        File dir = Files.createTempDirectory("alarm-simulation").toFile();
+        File registryFile = new File(dir, "alarm_registry.bin");
+        try {
+            new AlarmSimulation(alarms, days, seed, registryFile).run();
+        } finally {
+            registryFile.delete();
+            new File(registryFile.getPath() + ".tmp").delete();
+            dir.delete();
+        }
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        boot();
+        scheduleInitialAlarms();
+
+        long end = clock.millis() + days * DAY_MS;
+        long nextReboot = clock.millis() + randomDelay(20 * DAY_MS);
+        long nextZoneChange = clock.millis() + randomDelay(60 * DAY_MS);
+        long nextEdit = clock.millis() + DAY_MS;
+
+        while (true) {
+            AlarmBackend firedSlot = slot.next();
+            long nextFire = firedSlot != null ? slot.armedAt[firedSlot.ordinal()] : Long.MAX_VALUE;
+            long next = Math.min(Math.min(nextFire, end),
+                    Math.min(nextReboot, Math.min(nextZoneChange, nextEdit)));
+            if (next == end && nextFire > end) break;
+
+            if (next == nextFire) {
+                clock.set(nextFire + (long) (random.nextDouble() * MAX_DELIVERY_MS));
+                fire(firedSlot);
+            } else if (next == nextReboot) {
+                clock.set(nextReboot);
+                reboot();
+                nextReboot = clock.millis() + randomDelay(20 * DAY_MS);
+            } else if (next == nextZoneChange) {
+                clock.set(nextZoneChange);
+                changeZone();
+                nextZoneChange = clock.millis() + randomDelay(60 * DAY_MS);
+            } else {
+                clock.set(nextEdit);
+                editAlarms();
+                nextEdit += DAY_MS;
+            }
+        }
+
+        for (AlarmEntry entry : engine.getRegistry().entries()) {
+            if (entry.triggerAtMillis < end) overdueAtEnd++;
+        }
+        cancelEverything();
+        report((System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void boot() {
+        // A fresh process: the registry is replayed from disk, nothing is armed
+        slot.clear();
+        engine = new AlarmEngine(new AlarmRegistry(registryFile), slot, clock, COALESCE_WINDOW_MS);
+        snoozer = new SnoozeController(engine, clock, SnoozeController.DEFAULT_DURATION_MS, MAX_SNOOZES);
+    }
+
+    private void scheduleInitialAlarms() {
+        for (int i = 0; i < alarmCount; i++) {
+            arguments.add(alarmArguments("alarm_" + i, i % 4 == 0));
+        }
+        // Flutter sends alarms in batches of up to a hundred
+        for (int i = 0; i < arguments.size(); i += 100) {
+            schedule(arguments.subList(i, Math.min(arguments.size(), i + 100)));
+        }
+    }
+
+    private Map<String, Object> alarmArguments(String alarmId, boolean oneTime) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("alarmId", alarmId);
+        args.put("videoPath", VIDEO_PATH);
+        if (oneTime) {
+            // Set for a local time, as Flutter sends them
+            long timestamp = clock.millis() + randomDelay(days * DAY_MS);
+            ZonedDateTime local = Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault());
+            args.put("timestamp", timestamp);
+            args.put("timeZone", "");
+            args.put("isRecurring", false);
+            args.put("hour", local.getHour());
+            args.put("minute", local.getMinute());
+            args.put("backend", AlarmBackend.WINDOWED.channelName);
+        } else {
+            // A third of recurring alarms pin their zone, the rest follow the device
+            args.put("timestamp", clock.millis());
+            args.put("timeZone", random.nextInt(3) == 0 ? ZONES[0] : "");
+            args.put("isRecurring", true);
+            args.put("weekdayMask", 1 + random.nextInt(RecurrenceRule.ALL_DAYS));
+            args.put("hour", random.nextInt(24));
+            args.put("minute", random.nextInt(60));
+            args.put("backend", random.nextBoolean()
+                    ? AlarmBackend.ALARM_CLOCK.channelName
+                    : AlarmBackend.EXACT.channelName);
+        }
+        return args;
+    }
+
+    private void schedule(List<Map<String, Object>> batch) {
+        long started = System.nanoTime();
+        List<AlarmEntry> entries = new ArrayList<>(batch.size());
+        AlarmBatch.decodeAlarms(batch, clock.millis(), entries);
+        engine.scheduleAll(entries);
+        scheduleNanos += System.nanoTime() - started;
+        scheduleOps += entries.size();
+    }
+
+    private void cancel(String alarmId) {
+        long started = System.nanoTime();
+        engine.cancelGroup(alarmId);
+        cancelNanos += System.nanoTime() - started;
+        cancelOps++;
+    }
+
+    /**
+     * A slot went off: what {@link AlarmReceiver} does, plus the user's snooze choice.
+     */
+    private void fire(AlarmBackend firedSlot) {
+        slot.armedAt[firedSlot.ordinal()] = -1;
+        wakeups++;
+        long now = clock.millis();
+
+        List<AlarmEntry> due = engine.pollDueAlarms();
+        if (due.isEmpty()) emptyWakeups++;
+
+        for (AlarmEntry entry : due) {
+            fires++;
+            long delay = now - entry.triggerAtMillis;
+            drift.add(delay);
+            if (delay > MAX_DELIVERY_MS + COALESCE_WINDOW_MS) late++;
+
+            // No alarm recurs more than once a day, so two fires within a few hours repeat one;
+            // a snooze slot legitimately rings again after each snooze
+            Long previous = lastFired.put(entry.alarmId, now);
+            if (previous != null && now - previous < 3 * HOUR_MS
+                    && !SnoozeController.isSnooze(entry.alarmId)) duplicates++;
+
+            if (entry.hasLocalTime() && !atLocalTime(entry)) wrongLocalTime++;
+        }
+
+        engine.commitFired(firedSlot, due);
+
+        for (AlarmEntry entry : due) {
+            if (entry.isRecurring()) {
+                AlarmEntry next = engine.getRegistry().get(entry.alarmId);
+                if (next == null || next.triggerAtMillis != oracleNext(entry, now + COALESCE_WINDOW_MS)) {
+                    skipped++;
+                }
+            }
+
+            // One in five rings is snoozed, snoozes included, as AlarmActivity would do it
+            if (random.nextInt(5) == 0) {
+                if (snoozer.snoozeAll(Collections.singletonList(entry)).isEmpty()) {
+                    snoozeLimitHits++;
+                } else {
+                    snoozes++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The device goes down for up to half an hour and comes back with AlarmManager empty.
+     */
+    private void reboot() {
+        reboots++;
+        long off = randomDelay(30 * MINUTE_MS);
+        clock.set(clock.millis() + off);
+
+        boot();
+        for (AlarmEntry entry : engine.getRegistry().entries()) {
+            if (entry.triggerAtMillis <= clock.millis()) missedWhileOff++;
+        }
+        engine.rescheduleAll();
+    }
+
+    private void changeZone() {
+        zoneChanges++;
+        ZoneId previous = ZoneId.of(ZONES[zoneIndex]);
+        zoneIndex = (zoneIndex + 1) % ZONES.length;
+        TimeZone.setDefault(TimeZone.getTimeZone(ZONES[zoneIndex]));
+
+        // ACTION_TIMEZONE_CHANGED
+        movedByZone += engine.recomputeWallClock(previous).size();
+    }
+
+    /**
+     * A few alarms are edited each day: canceled and scheduled again.
+     */
+    private void editAlarms() {
+        for (int i = 0; i < 5; i++) {
+            int index = random.nextInt(arguments.size());
+            String alarmId = (String) arguments.get(index).get("alarmId");
+            cancel(alarmId);
+            lastFired.remove(alarmId);
+
+            Map<String, Object> args = alarmArguments(alarmId, index % 4 == 0);
+            arguments.set(index, args);
+            schedule(Collections.singletonList(args));
+        }
+    }
+
+    private void cancelEverything() {
+        for (Map<String, Object> args : arguments) {
+            cancel((String) args.get("alarmId"));
+        }
+    }
+
+    private boolean atLocalTime(AlarmEntry entry) {
+        if (!entry.isRecurring()) {
+            ZoneId zone = ZoneId.systemDefault();
+            ZonedDateTime fired = Instant.ofEpochMilli(entry.triggerAtMillis).atZone(zone);
+            if (fired.getHour() == entry.hour && fired.getMinute() == entry.minute) return true;
+            return gapAt(zone, fired.toLocalDate().atTime(entry.hour, entry.minute)) != null;
+        }
+
+        RecurrenceRule rule = entry.rule();
+        ZonedDateTime fired = Instant.ofEpochMilli(entry.triggerAtMillis).atZone(rule.zone);
+        if ((rule.weekdayMask & 1 << fired.getDayOfWeek().getValue() - 1) == 0) return false;
+        if (fired.getHour() == rule.hour && fired.getMinute() == rule.minute) return true;
+
+        // The local time did not exist that day; the alarm fires when the gap ends
+        return gapAt(rule.zone, fired.toLocalDate().atTime(rule.hour, rule.minute)) != null;
+    }
+
+    /**
+     * Next occurrence found by walking day by day, independent of {@link RecurrenceRule}.
+     */
+    private static long oracleNext(AlarmEntry entry, long afterMillis) {
+        RecurrenceRule rule = entry.rule();
+        LocalDate date = Instant.ofEpochMilli(afterMillis).atZone(rule.zone).toLocalDate();
+        for (int i = 0; i <= 8; i++, date = date.plusDays(1)) {
+            if ((rule.weekdayMask & 1 << date.getDayOfWeek().getValue() - 1) == 0) continue;
+
+            LocalDateTime local = date.atTime(rule.hour, rule.minute);
+            ZoneOffsetTransition gap = gapAt(rule.zone, local);
+            long at = gap != null
+                    ? gap.getInstant().toEpochMilli()
+                    : local.atZone(rule.zone).withEarlierOffsetAtOverlap().toInstant().toEpochMilli();
+            if (at > afterMillis) return at;
+        }
+        return -1;
+    }
+
+    private static ZoneOffsetTransition gapAt(ZoneId zone, LocalDateTime local) {
+        ZoneOffsetTransition transition = zone.getRules().getTransition(local);
+        return transition != null && transition.isGap() ? transition : null;
+    }
+
+    private long randomDelay(long maxMillis) {
+        return 1 + (long) (random.nextDouble() * maxMillis);
+    }
+
+    private void report(long elapsedMs) {
+        System.out.printf(Locale.ROOT, "Simulated %d days, %d alarms in %d ms%n", days, alarmCount, elapsedMs);
+        System.out.printf(Locale.ROOT, "  schedule: %d ops, %.0f ops/s%n", scheduleOps, perSecond(scheduleOps, scheduleNanos));
+        System.out.printf(Locale.ROOT, "  cancel:   %d ops, %.0f ops/s%n", cancelOps, perSecond(cancelOps, cancelNanos));
+        System.out.printf(Locale.ROOT, "  wakeups: %d (%d empty), slot arms: %d, fires: %d, snoozes: %d (%d at limit)%n",
+                wakeups, emptyWakeups, slot.arms, fires, snoozes, snoozeLimitHits);
+        System.out.printf(Locale.ROOT, "  reboots: %d, zone changes: %d (%d alarms moved)%n",
+                reboots, zoneChanges, movedByZone);
+        System.out.printf(Locale.ROOT, "  missed while off: %d, late: %d, skipped: %d, overdue at end: %d%n",
+                missedWhileOff, late, skipped, overdueAtEnd);
+        System.out.printf(Locale.ROOT, "  duplicates: %d, wrong local time: %d%n", duplicates, wrongLocalTime);
+        System.out.printf(Locale.ROOT, "  drift ms: min %d, p50 %d, p99 %d, max %d%n",
+                drift.percentile(0), drift.percentile(50), drift.percentile(99), drift.percentile(100));
+    }
+
+    private static double perSecond(long ops, long nanos) {
+        return nanos > 0 ? ops * 1e9 / nanos : 0;
+    }
+
+    /**
+     * Wall clock under the simulation's control; the zone is the device default so time zone
+     * changes behave as on a device.
+     */
+    private static final class FakeClock extends Clock {
+        private long millis;
+
+        FakeClock(long millis) {
+            this.millis = millis;
+        }
+
+        void set(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Stands in for AlarmManager: holds one armed slot per backend.
+     */
+    private static final class RecordingSlot implements AlarmEngine.Slot {
+        final long[] armedAt = new long[AlarmBackend.values().length];
+        long arms;
+
+        RecordingSlot() {
+            clear();
+        }
+
+        void clear() {
+            Arrays.fill(armedAt, -1);
+        }
+
+        /**
+         * The slot that goes off first, or null when none is armed.
+         */
+        AlarmBackend next() {
+            AlarmBackend next = null;
+            for (AlarmBackend backend : AlarmBackend.values()) {
+                long at = armedAt[backend.ordinal()];
+                if (at >= 0 && (next == null || at < armedAt[next.ordinal()])) {
+                    next = backend;
+                }
+            }
+            return next;
+        }
+
+        @Override
+        public void arm(AlarmBackend backend, AlarmEntry head, int pending) {
+            armedAt[backend.ordinal()] = head.triggerAtMillis;
+            arms++;
+        }
+
+        @Override
+        public void cancel(AlarmBackend backend) {
+            armedAt[backend.ordinal()] = -1;
+        }
+    }
+
+    private static final class LongSamples {
+        private long[] values = new long[1024];
+        private int size;
+        private boolean sorted;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            sorted = false;
+        }
+
+        long percentile(int percent) {
+            if (size == 0) return 0;
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+            return values[Math.min(size - 1, (int) ((long) size * percent / 100))];
+        }
+    }
+}
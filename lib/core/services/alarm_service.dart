@@ -7,13 +7,25 @@ import 'package:permission_handler/permission_handler.dart';
 import 'package:timezone/timezone.dart' as tz;
 
 import '../../domain/entities/alarm.dart';
+import '../../domain/entities/alarm_event.dart';
 
 class AlarmService {
   static const platform = MethodChannel('com.app.famz/alarm');
+  static const events = EventChannel('com.app.famz/alarm_events');
+
+  // User alarms use setAlarmClock: exempt from Doze and shown in the status bar.
+  // The native side falls back to a windowed alarm without the exact alarm permission.
+  static const alarmBackend = 'alarmClock';
 
   final FlutterLocalNotificationsPlugin flutterLocalNotificationsPlugin =
       FlutterLocalNotificationsPlugin();
 
+  // Fires, snoozes, stops and audio fallbacks as they happen natively; events from while
+  // no engine was attached are replayed on subscription
+  Stream<AlarmEvent> get alarmEvents => events
+      .receiveBroadcastStream()
+      .map((event) => AlarmEvent.fromMap(event as Map<dynamic, dynamic>));
+
   // Initialize
   Future<void> init() async {
     // Initialize flutter local notifications
@@ -48,43 +60,88 @@ class AlarmService {
   }
 
   Future<void> scheduleAlarm(Alarm alarm) async {
-    try {
+    await scheduleAlarms([alarm]);
+  }
+
+  // Schedule several alarms with a single platform-channel round trip
+  Future<void> scheduleAlarms(List<Alarm> alarms) async {
+    final specs = <Map<String, dynamic>>[];
+    final oneTimeAlarms = <Alarm>[];
+
+    for (final alarm in alarms) {
       if (alarm.isRecurring) {
         // For recurring alarms, we need a different approach
-        await _scheduleRecurringAlarm(alarm, '');
+        final spec = _buildRecurringAlarmSpec(alarm, '');
+        if (spec != null) specs.add(spec);
       } else {
         // For one-time alarms
         final timestamp = alarm.scheduledTime.millisecondsSinceEpoch;
 
         // Only schedule if the time is in the future
         if (timestamp > DateTime.now().millisecondsSinceEpoch) {
-          await platform.invokeMethod('scheduleAlarm', {
+          specs.add({
             'alarmId': alarm.id,
             'timestamp': timestamp,
             'videoPath': alarm.videoPath,
             'timeZone': '',
             'isRecurring': false,
             'weekdays': null,
+            // Lets the native side keep the local time across time zone changes
+            'hour': alarm.scheduledTime.hour,
+            'minute': alarm.scheduledTime.minute,
+            'backend': alarmBackend,
           });
-
+          oneTimeAlarms.add(alarm);
+        } else {
           debugPrint(
-              'Scheduled one-time alarm: ${alarm.id} at ${alarm.scheduledTime}');
+              'Cannot schedule alarm in the past: ${alarm.scheduledTime}');
+        }
+      }
+    }
+
+    if (specs.isEmpty) return;
 
-          // Also schedule a notification as a fallback
-          await _scheduleNotification(alarm);
+    try {
+      final results = await platform.invokeListMethod<Map<dynamic, dynamic>>(
+        'scheduleAlarms',
+        {'alarms': specs},
+      );
+
+      final failedIds = <String>[];
+      for (final result in results ?? const <Map<dynamic, dynamic>>[]) {
+        if (result['success'] == true) {
+          debugPrint('Scheduled alarm: ${result['alarmId']}');
         } else {
           debugPrint(
-              'Cannot schedule alarm in the past: ${alarm.scheduledTime}');
+              'Failed to schedule alarm ${result['alarmId']}: ${result['error']}');
+          failedIds.add('${result['alarmId']}');
         }
       }
+
+      // Also schedule a notification as a fallback
+      for (final alarm in oneTimeAlarms) {
+        if (failedIds.contains(alarm.id)) continue;
+        await _scheduleNotification(alarm);
+      }
+
+      // Callers show an error when scheduling fails, as they did for scheduleAlarm
+      if (failedIds.isNotEmpty) {
+        throw PlatformException(
+          code: 'SCHEDULE_ERROR',
+          message: 'Failed to schedule alarms: ${failedIds.join(', ')}',
+          details: failedIds,
+        );
+      }
     } on PlatformException catch (e) {
-      debugPrint('Failed to schedule alarm: ${e.message}');
+      debugPrint('Failed to schedule alarms: ${e.message}');
       rethrow;
     }
   }
 
-  // New implementation of _scheduleRecurringAlarm
-  Future<void> _scheduleRecurringAlarm(Alarm alarm, String timeZone) async {
+  // Build a single channel spec covering every selected weekday of a recurring
+  // alarm. The native side computes each fire time from the weekday mask, so the
+  // timestamp is only the first occurrence as seen from here.
+  Map<String, dynamic>? _buildRecurringAlarmSpec(Alarm alarm, String timeZone) {
     // Get the hour and minute from the scheduled time
     final hour = alarm.scheduledTime.hour;
     final minute = alarm.scheduledTime.minute;
@@ -93,39 +150,37 @@ class AlarmService {
     debugPrint('Scheduling recurring alarm: ${alarm.id}');
     debugPrint('Selected days: ${alarm.weekdays}');
 
-    // For each selected weekday, schedule an alarm
+    // Bit i is weekday i (0 = Monday)
+    int weekdayMask = 0;
+    DateTime? firstOccurrence;
     for (int i = 0; i < 7; i++) {
       if (alarm.weekdays[i]) {
-        // Convert to Android weekday format (1 = Monday, 7 = Sunday)
-        int androidWeekday = i + 1;
-
-        // Calculate the next occurrence of this weekday
-        final nextOccurrence =
-            _getNextWeekdayOccurrence(androidWeekday, hour, minute);
-
-        // Create a unique ID for this weekday's alarm
-        final weekdayAlarmId = '${alarm.id}_$i';
-
-        debugPrint(
-            'Scheduling for day $i (Android day $androidWeekday): ${nextOccurrence.toIso8601String()}');
-
-        // Schedule this specific day's alarm
-        await platform.invokeMethod('scheduleAlarm', {
-          'alarmId': weekdayAlarmId,
-          'timestamp': nextOccurrence.millisecondsSinceEpoch,
-          'videoPath': alarm.videoPath,
-          'timeZone': timeZone,
-          'isRecurring': true,
-          'weekday': i,
-          'hour': hour,
-          'minute': minute,
-          'recurringId': alarm.id,
-        });
-
-        debugPrint(
-            'Scheduled recurring alarm for day $i: $weekdayAlarmId at $nextOccurrence');
+        weekdayMask |= 1 << i;
+
+        // Android weekday format (1 = Monday, 7 = Sunday)
+        final occurrence = _getNextWeekdayOccurrence(i + 1, hour, minute);
+        if (firstOccurrence == null || occurrence.isBefore(firstOccurrence)) {
+          firstOccurrence = occurrence;
+        }
       }
     }
+
+    if (firstOccurrence == null) {
+      debugPrint('Recurring alarm ${alarm.id} has no weekdays selected');
+      return null;
+    }
+
+    return {
+      'alarmId': alarm.id,
+      'timestamp': firstOccurrence.millisecondsSinceEpoch,
+      'videoPath': alarm.videoPath,
+      'timeZone': timeZone,
+      'isRecurring': true,
+      'weekdayMask': weekdayMask,
+      'hour': hour,
+      'minute': minute,
+      'backend': alarmBackend,
+    };
   }
 
   // Helper to calculate the next occurrence of a specific weekday at a specific time
@@ -151,17 +206,9 @@ class AlarmService {
 
   Future<void> cancelAlarm(String id) async {
     try {
-      // For recurring alarms, cancel each weekday alarm
-      for (int weekday = 0; weekday < 7; weekday++) {
-        final String alarmIdForDay = '${id}_$weekday';
-        await platform.invokeMethod('cancelAlarm', {
-          'alarmId': alarmIdForDay,
-        });
-      }
-
-      // Also cancel the main alarm ID
-      await platform.invokeMethod('cancelAlarm', {
-        'alarmId': id,
+      // Cancels the alarm, plus per-weekday alarms scheduled by older versions
+      await platform.invokeMethod('cancelAlarmGroup', {
+        'recurringId': id,
       });
 
       // Also cancel notification
@@ -171,6 +218,135 @@ class AlarmService {
     }
   }
 
+  // Each snooze rings again after duration; after maxCount snoozes in a row (0 for no
+  // limit) the alarm can only be stopped
+  Future<void> setSnoozeSettings(Duration duration, int maxCount) async {
+    try {
+      await platform.invokeMethod('setSnoozeSettings', {
+        'durationMillis': duration.inMilliseconds,
+        'maxCount': maxCount,
+      });
+    } on PlatformException catch (e) {
+      debugPrint('Failed to set snooze settings: ${e.message}');
+    }
+  }
+
+  // Drops a pending snooze of the alarm; returns whether one was pending
+  Future<bool> cancelSnooze(String id) async {
+    try {
+      final pending = await platform.invokeMethod<bool>('cancelSnooze', {
+        'alarmId': id,
+      });
+      return pending ?? false;
+    } on PlatformException catch (e) {
+      debugPrint('Failed to cancel snooze: ${e.message}');
+      return false;
+    }
+  }
+
+  // Alarms due within this window of each other ring on a single device wakeup
+  Future<void> setCoalescingWindow(Duration window) async {
+    try {
+      await platform.invokeMethod('setAlarmCoalescingWindow', {
+        'windowMillis': window.inMilliseconds,
+      });
+    } on PlatformException catch (e) {
+      debugPrint('Failed to set coalescing window: ${e.message}');
+    }
+  }
+
+  // Upper bound for the native copies of alarm videos kept on the device
+  Future<void> setVideoCacheBudget(int budgetBytes) async {
+    try {
+      await platform.invokeMethod('setVideoCacheBudget', {
+        'budgetBytes': budgetBytes,
+      });
+    } on PlatformException catch (e) {
+      debugPrint('Failed to set video cache budget: ${e.message}');
+    }
+  }
+
+  // The fallback alarm sound starts at startVolume (0..1) and reaches full volume after ramp
+  Future<void> setVolumeRamp(double startVolume, Duration ramp) async {
+    try {
+      await platform.invokeMethod('setAlarmVolumeRamp', {
+        'startVolume': startVolume,
+        'rampMillis': ramp.inMilliseconds,
+      });
+    } on PlatformException catch (e) {
+      debugPrint('Failed to set volume ramp: ${e.message}');
+    }
+  }
+
+  // Fire-path delay percentiles per alarm: {alarmId: {hop: {count, p50, p95, p99, max}}}
+  // audioSwitch is measured from the video failing to the first fallback audio frame
+  Future<Map<String, dynamic>> getAlarmLatencyStats() async {
+    try {
+      final stats =
+          await platform.invokeMapMethod<String, dynamic>('getAlarmLatencyStats');
+      return stats ?? const {};
+    } on PlatformException catch (e) {
+      debugPrint('Failed to get alarm latency stats: ${e.message}');
+      return const {};
+    }
+  }
+
+  // Receiver delay percentiles per delivering backend:
+  // {alarmClock|exact|windowed: {receiver: {count, p50, p95, p99, max}}}
+  Future<Map<String, dynamic>> getAlarmBackendStats() async {
+    try {
+      final stats =
+          await platform.invokeMapMethod<String, dynamic>('getAlarmBackendStats');
+      return stats ?? const {};
+    } on PlatformException catch (e) {
+      debugPrint('Failed to get alarm backend stats: ${e.message}');
+      return const {};
+    }
+  }
+
+  // Native alarm lifecycle events, oldest first, for support tickets:
+  // [{time, event, code, result, value}]
+  Future<List<Map<String, dynamic>>> getAlarmJournal() async {
+    try {
+      final records =
+          await platform.invokeListMethod<Map<dynamic, dynamic>>('getAlarmJournal');
+      return (records ?? const [])
+          .map((record) => Map<String, dynamic>.from(record))
+          .toList();
+    } on PlatformException catch (e) {
+      debugPrint('Failed to get alarm journal: ${e.message}');
+      return const [];
+    }
+  }
+
+  // What the native alarm stack cost per day, oldest first, for wakeup budgets:
+  // [{day, wakeups, alarms, serviceMs, wakeLockMs, vibratorMs, decodeMs, videoMs}]
+  // alarms / wakeups shows how well coalescing batches alarms into one wakeup
+  Future<List<Map<String, dynamic>>> getPowerStats() async {
+    try {
+      final days =
+          await platform.invokeListMethod<Map<dynamic, dynamic>>('getPowerStats');
+      return (days ?? const [])
+          .map((day) => Map<String, dynamic>.from(day))
+          .toList();
+    } on PlatformException catch (e) {
+      debugPrint('Failed to get power stats: ${e.message}');
+      return const [];
+    }
+  }
+
+  // Wake-lock accounting of the native alarm session
+  Future<Map<String, dynamic>> getWakeLockStats() async {
+    try {
+      final stats =
+          await platform.invokeMapMethod<String, dynamic>('getWakeLockStats');
+      return stats ?? const {};
+    } on PlatformException catch (e) {
+      debugPrint('Failed to get wake lock stats: ${e.message}');
+      return const {};
+    }
+  }
+
   // Schedule a notification as a fallback
   Future<void> _scheduleNotification(Alarm alarm) async {
     final androidPlatformChannelSpecifics = AndroidNotificationDetails(
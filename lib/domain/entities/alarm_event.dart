@@ -0,0 +1,48 @@
+import 'package:equatable/equatable.dart';
+
+enum AlarmEventType { fired, rescheduled, snoozed, stopped, audioFallback, unknown }
+
+// Lifecycle event of a native alarm, streamed from com.app.famz/alarm_events
+class AlarmEvent extends Equatable {
+  final AlarmEventType type;
+  final String? alarmId;
+  final DateTime time;
+  // fired: scheduled time; rescheduled: next occurrence; snoozed: snooze time
+  final DateTime? triggerTime;
+  final String? recurringId;
+  final String? snoozeAlarmId;
+  // snoozed: snoozes in a row so far
+  final int? snoozeCount;
+
+  const AlarmEvent({
+    required this.type,
+    required this.alarmId,
+    required this.time,
+    this.triggerTime,
+    this.recurringId,
+    this.snoozeAlarmId,
+    this.snoozeCount,
+  });
+
+  factory AlarmEvent.fromMap(Map<dynamic, dynamic> map) {
+    final triggerAt = map['triggerAt'] as int?;
+    return AlarmEvent(
+      type: AlarmEventType.values.firstWhere(
+        (type) => type.name == map['type'],
+        orElse: () => AlarmEventType.unknown,
+      ),
+      alarmId: map['alarmId'] as String?,
+      time: DateTime.fromMillisecondsSinceEpoch(map['time'] as int),
+      triggerTime: triggerAt != null
+          ? DateTime.fromMillisecondsSinceEpoch(triggerAt)
+          : null,
+      recurringId: map['recurringId'] as String?,
+      snoozeAlarmId: map['snoozeAlarmId'] as String?,
+      snoozeCount: map['snoozeCount'] as int?,
+    );
+  }
+
+  @override
+  List<Object?> get props =>
+      [type, alarmId, time, triggerTime, recurringId, snoozeAlarmId, snoozeCount];
+}
@@ -1,3 +1,5 @@
+import 'dart:async';
+
 import 'package:firebase_core/firebase_core.dart';
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
@@ -34,3 +36,23 @@ Future<void> main() async {
 
   runApp(const FamzApp());
 }
+
+// Entrypoint of the engine FlutterEngineWarmer starts ahead of time, possibly headless.
+// It only sets up bindings and waits: main() initializes Firebase, notifications and
+// messaging, which must run once, for the activity that claims the engine.
+@pragma('vm:entry-point')
+Future<void> warmMain() async {
+  WidgetsFlutterBinding.ensureInitialized();
+
+  const channel = MethodChannel('com.app.famz/warmup');
+  final claimed = Completer<void>();
+  channel.setMethodCallHandler((call) async {
+    if (call.method == 'runMain' && !claimed.isCompleted) {
+      claimed.complete();
+    }
+  });
+  await claimed.future;
+  channel.setMethodCallHandler(null);
+
+  await main();
+}